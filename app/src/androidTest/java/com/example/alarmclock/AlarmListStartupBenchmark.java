@@ -0,0 +1,126 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Đo phần khởi động danh sách báo thức khi DB có 1k báo thức: thời gian main thread bị chặn khi đọc cả bảng và
+ * tính lại next_alarm_time trực tiếp (cách cũ) so với khi chỉ gửi việc đọc trang đầu sang luồng nền như AlarmFragment,
+ * và thời gian tới khi trang đầu về lại main thread. Chạy trên DB riêng (new DatabaseHelper(context, DB_NAME)) như
+ * các benchmark khác nên không đụng tới DB hay lịch báo thức của người dùng.
+ * Kết quả được ghi ra logcat với tag "AlarmListStartup".
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmListStartupBenchmark {
+    private static final String TAG = "AlarmListStartup";
+    private static final String DB_NAME = "alarms_startup.db";
+    private static final int ALARM_COUNT = 1_000;
+    private static final int LAUNCHES = 5;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+    private ExecutorService loader;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+        loader = Executors.newSingleThreadExecutor();
+        List<Alarm> alarms = new ArrayList<>(ALARM_COUNT);
+        for (int i = 0; i < ALARM_COUNT; i++) {
+            alarms.add(new Alarm(0, i % 24, i % 60, Arrays.asList(2, 3, 4, 5, 6), true, true,
+                    "Alarm " + i, true, 10));
+        }
+        dbHelper.addAlarms(alarms);
+    }
+
+    @After
+    public void tearDown() {
+        loader.shutdownNow();
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void loadWith1kAlarms() throws Exception {
+        long[] synchronousLoad = new long[LAUNCHES];
+        long[] mainThreadBlocked = new long[LAUNCHES];
+        long[] firstPage = new long[LAUNCHES];
+        for (int i = 0; i < LAUNCHES; i++) {
+            // Cách cũ: onResume đọc cả bảng và tính lại next_alarm_time đã cũ trên main thread
+            resetTriggerTimes();
+            AtomicLong blocked = new AtomicLong();
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                long start = SystemClock.uptimeMillis();
+                List<Alarm> loaded = dbHelper.getAllAlarms();
+                dbHelper.transitionAll(loaded, AlarmState.EVENT_SCHEDULE, System.currentTimeMillis());
+                blocked.set(SystemClock.uptimeMillis() - start);
+                assertEquals(ALARM_COUNT, loaded.size());
+            });
+            synchronousLoad[i] = blocked.get();
+
+            // Cách hiện tại: main thread chỉ gửi việc, trang đầu được đọc trên luồng nền rồi post về
+            CountDownLatch delivered = new CountDownLatch(1);
+            AtomicLong deliveredAt = new AtomicLong();
+            AtomicReference<List<Alarm>> page = new AtomicReference<>();
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            AtomicLong requestedAt = new AtomicLong();
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                long start = SystemClock.uptimeMillis();
+                requestedAt.set(start);
+                loader.execute(() -> {
+                    List<Alarm> rows = dbHelper.getAlarmsAfter(0, AlarmPageWindow.PAGE_SIZE);
+                    mainHandler.post(() -> {
+                        page.set(rows);
+                        deliveredAt.set(SystemClock.uptimeMillis());
+                        delivered.countDown();
+                    });
+                });
+                blocked.set(SystemClock.uptimeMillis() - start);
+            });
+            assertTrue(delivered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            assertEquals(AlarmPageWindow.PAGE_SIZE, page.get().size());
+            mainThreadBlocked[i] = blocked.get();
+            firstPage[i] = deliveredAt.get() - requestedAt.get();
+        }
+
+        Log.i(TAG, "alarms=" + ALARM_COUNT + ", runs=" + LAUNCHES +
+                ", main thread blocked " + median(synchronousLoad) + "ms -> " + median(mainThreadBlocked) + "ms" +
+                ", first page on main thread after " + median(firstPage) + "ms");
+    }
+
+    private void resetTriggerTimes() {
+        dbHelper.getWritableDatabase().execSQL("UPDATE alarms SET next_alarm_time=0");
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
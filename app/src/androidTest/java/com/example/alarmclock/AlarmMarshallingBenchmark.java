@@ -0,0 +1,103 @@
+package com.example.alarmclock;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * So sánh thời gian marshal và kích thước Bundle giữa đường Serializable cũ và Parcelable/AlarmCodec.
+ * Kết quả được ghi ra logcat với tag "MarshallingBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmMarshallingBenchmark {
+    private static final String TAG = "MarshallingBenchmark";
+    private static final int ITERATIONS = 5_000;
+
+    @Test
+    public void serializableVersusParcelable() {
+        Alarm alarm = new Alarm(7, 6, 30, Arrays.asList(2, 3, 4, 5, 6), true, true, "Work", true, 10);
+        alarm.setNextAlarmTime(System.currentTimeMillis());
+        LegacyAlarm legacy = new LegacyAlarm(alarm);
+
+        long start = System.nanoTime();
+        int legacySize = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Bundle bundle = new Bundle();
+            bundle.putSerializable("alarm", legacy);
+            legacySize = roundTrip(bundle);
+        }
+        long legacyNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        int parcelSize = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Bundle bundle = new Bundle();
+            bundle.putParcelable("alarm", alarm);
+            parcelSize = roundTrip(bundle);
+        }
+        long parcelNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        int codecSize = AlarmCodec.encode(alarm).length;
+        assertTrue(parcelSize < legacySize);
+        Log.i(TAG, "Serializable " + legacyNanos / 1000 + "us " + legacySize + "B, Parcelable " +
+                parcelNanos / 1000 + "us " + parcelSize + "B, codec payload " + codecSize + "B");
+    }
+
+    // Ghi Bundle ra Parcel rồi đọc lại (như khi truyền qua Binder), trả về số byte đã ghi
+    private int roundTrip(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            int size = parcel.dataSize();
+            parcel.setDataPosition(0);
+            Bundle restored = parcel.readBundle(getClass().getClassLoader());
+            assertNotNull(restored.get("alarm"));
+            return size;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    // Bản sao hình dạng của Alarm khi còn dùng Serializable với List<Integer>
+    private static class LegacyAlarm implements Serializable {
+        private final int id;
+        private final int hour;
+        private final int minute;
+        private final List<Integer> daysOfWeek;
+        private final boolean snooze;
+        private final boolean enabled;
+        private final String label;
+        private final boolean vibrationEnabled;
+        private final int snoozeDuration;
+        private final String ringtone;
+        private final boolean isSnoozing;
+        private final long nextAlarmTime;
+
+        LegacyAlarm(Alarm alarm) {
+            id = alarm.getId();
+            hour = alarm.getHour();
+            minute = alarm.getMinute();
+            daysOfWeek = new ArrayList<>(alarm.getDaysOfWeek());
+            snooze = alarm.isSnooze();
+            enabled = alarm.isEnabled();
+            label = alarm.getLabel();
+            vibrationEnabled = alarm.isVibrationEnabled();
+            snoozeDuration = alarm.getSnoozeDuration();
+            ringtone = alarm.getRingtone();
+            isSnoozing = alarm.isSnoozing();
+            nextAlarmTime = alarm.getNextAlarmTime();
+        }
+    }
+}
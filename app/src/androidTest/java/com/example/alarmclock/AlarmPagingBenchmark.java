@@ -0,0 +1,120 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * So sánh đọc cả bảng (getAllAlarms) với đọc theo trang (AlarmPageWindow) ở 10k và 100k báo thức:
+ * thời gian tới khi có dòng đầu tiên, heap giữ lại sau lần đọc đầu và heap lớn nhất khi cuộn hết bảng theo trang.
+ * Heap được đo sau GC nên chỉ tính object còn được giữ. Kết quả được ghi ra logcat với tag "AlarmPagingBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmPagingBenchmark {
+    private static final String TAG = "AlarmPagingBenchmark";
+    private static final String DB_NAME = "alarms_paging.db";
+    private static final int INSERT_BATCH = 10_000;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+    // Giữ kết quả để GC không thu hồi trước khi đo heap
+    private Object retained;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        retained = null;
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void firstRowAndHeap() {
+        int stored = 0;
+        for (int count : new int[]{10_000, 100_000}) {
+            insertAlarms(count - stored);
+            stored = count;
+            // Làm nóng statement cache và page cache của SQLite cho cả hai cách đọc
+            dbHelper.getAlarmsAfter(0, AlarmPageWindow.PAGE_SIZE);
+
+            long baseline = usedHeap();
+            long start = System.nanoTime();
+            List<Alarm> all = dbHelper.getAllAlarms();
+            long allFirstRow = System.nanoTime() - start;
+            retained = all;
+            long allHeap = usedHeap() - baseline;
+            assertEquals(count, all.size());
+            retained = null;
+            all = null;
+
+            baseline = usedHeap();
+            start = System.nanoTime();
+            AlarmPageWindow window = new AlarmPageWindow(AlarmPageWindow.PAGE_SIZE, AlarmPageWindow.MAX_PAGES);
+            List<Alarm> firstPage = dbHelper.getAlarmsAfter(0, AlarmPageWindow.PAGE_SIZE);
+            window.reset(firstPage, false, firstPage.size() >= AlarmPageWindow.PAGE_SIZE);
+            long pagedFirstRow = System.nanoTime() - start;
+            retained = window;
+            long pagedHeap = usedHeap() - baseline;
+
+            // Cuộn tới cuối bảng: mỗi trang mới đẩy trang cũ nhất ra khỏi cửa sổ
+            long maxPagedHeap = pagedHeap;
+            int pages = 1;
+            start = System.nanoTime();
+            while (window.hasAfter()) {
+                window.append(dbHelper.getAlarmsAfter(window.lastId(), AlarmPageWindow.PAGE_SIZE));
+                assertTrue(window.size() <= AlarmPageWindow.PAGE_SIZE * AlarmPageWindow.MAX_PAGES);
+                if (++pages % 200 == 0) {
+                    maxPagedHeap = Math.max(maxPagedHeap, usedHeap() - baseline);
+                }
+            }
+            long scrollNanos = System.nanoTime() - start;
+            assertEquals(stored, window.lastId());
+            retained = null;
+
+            Log.i(TAG, "rows=" + count +
+                    ", first row " + allFirstRow / 1000 + "us -> " + pagedFirstRow / 1000 + "us" +
+                    ", retained heap " + allHeap / 1024 + "KB -> " + pagedHeap / 1024 + "KB" +
+                    " (max while scrolling " + maxPagedHeap / 1024 + "KB)" +
+                    ", full scroll " + pages + " pages in " + scrollNanos / 1_000_000 + "ms");
+        }
+    }
+
+    private void insertAlarms(int count) {
+        for (int inserted = 0; inserted < count; inserted += INSERT_BATCH) {
+            List<Alarm> batch = new ArrayList<>(INSERT_BATCH);
+            for (int i = inserted; i < Math.min(inserted + INSERT_BATCH, count); i++) {
+                batch.add(new Alarm(0, i % 24, i % 60, Arrays.asList(2, 3, 4, 5, 6), true, i % 2 == 0,
+                        "Shift " + i, true, 10));
+            }
+            dbHelper.addAlarms(batch);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
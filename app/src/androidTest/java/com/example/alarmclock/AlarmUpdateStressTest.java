@@ -0,0 +1,191 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Nhiều luồng cùng ghi vào vài dòng báo thức: các luồng "receiver" bật/tắt bằng transition từ bản
+ * đọc một lần lúc đầu (luôn cũ), các luồng "UI" tăng snooze_duration bằng updateAlarm có thử lại.
+ * Kiểm tra không mất lần ghi nào (snooze_duration và version khớp số lần ghi thành công), đồng thời đo
+ * thông lượng và thời gian chờ khóa ghi (độ trễ mỗi lần ghi trừ độ trễ khi chạy một luồng).
+ * Kết quả được ghi ra logcat với tag "AlarmUpdateStress".
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmUpdateStressTest {
+    private static final String TAG = "AlarmUpdateStress";
+    private static final String DB_NAME = "alarms_stress.db";
+    private static final int ALARM_COUNT = 8;
+    private static final int RECEIVER_THREADS = 4;
+    private static final int UI_THREADS = 2;
+    private static final int OPS_PER_THREAD = 500;
+    private static final int INITIAL_SNOOZE_DURATION = 5;
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void noLostUpdatesUnderContention() throws Exception {
+        List<Alarm> alarms = new ArrayList<>();
+        for (int i = 0; i < ALARM_COUNT; i++) {
+            alarms.add(new Alarm(0, 6 + i, 0, Arrays.asList(2, 3, 4, 5, 6), true, true,
+                    "", true, INITIAL_SNOOZE_DURATION));
+            alarms.get(i).setNextAlarmTime(alarms.get(i).calculateNextAlarmTime());
+        }
+        dbHelper.addAlarms(alarms);
+
+        long uncontended = measureUncontendedWrite(alarms.get(0).getId());
+
+        AtomicIntegerArray increments = new AtomicIntegerArray(ALARM_COUNT);
+        AtomicIntegerArray transitions = new AtomicIntegerArray(ALARM_COUNT);
+        AtomicInteger editAttempts = new AtomicInteger();
+        AtomicLong writeNanos = new AtomicLong();
+        AtomicLong maxWriteNanos = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+
+        for (int t = 0; t < RECEIVER_THREADS; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                // Bản đọc một lần, trở nên cũ ngay khi luồng khác ghi
+                List<Alarm> snapshot = dbHelper.getAllAlarms();
+                Random random = new Random(seed);
+                await(start);
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int index = random.nextInt(ALARM_COUNT);
+                    Alarm alarm = snapshot.get(index);
+                    int event = random.nextBoolean() ? AlarmState.EVENT_DISABLE : AlarmState.EVENT_SCHEDULE;
+                    long begin = System.nanoTime();
+                    boolean changed = dbHelper.transition(alarm, event, System.currentTimeMillis());
+                    record(writeNanos, maxWriteNanos, System.nanoTime() - begin);
+                    if (changed) {
+                        transitions.incrementAndGet(indexOf(alarms, alarm.getId()));
+                    }
+                }
+            }));
+        }
+        for (int t = 0; t < UI_THREADS; t++) {
+            long seed = 100 + t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                await(start);
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int index = random.nextInt(ALARM_COUNT);
+                    long begin = System.nanoTime();
+                    Alarm saved = dbHelper.updateAlarm(alarms.get(index).getId(), DatabaseHelper.FIELD_SNOOZE,
+                            alarm -> {
+                                editAttempts.incrementAndGet();
+                                alarm.setSnoozeDuration(alarm.getSnoozeDuration() + 1);
+                            });
+                    record(writeNanos, maxWriteNanos, System.nanoTime() - begin);
+                    assertNotNull(saved);
+                    increments.incrementAndGet(index);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler((th, e) -> {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        assertTrue(failures.toString(), failures.isEmpty());
+
+        for (Alarm stored : dbHelper.getAllAlarms()) {
+            int index = indexOf(alarms, stored.getId());
+            assertEquals(INITIAL_SNOOZE_DURATION + increments.get(index), stored.getSnoozeDuration());
+            assertEquals(increments.get(index) + transitions.get(index), stored.getVersion());
+            // Cột dữ liệu không bị transition ghi đè và ngược lại
+            assertEquals(6 + index, stored.getHour());
+            assertEquals(stored.isEnabled(), stored.getNextAlarmTime() > 0);
+        }
+
+        int ops = (RECEIVER_THREADS + UI_THREADS) * OPS_PER_THREAD;
+        long avgWrite = writeNanos.get() / ops;
+        int retries = editAttempts.get() - UI_THREADS * OPS_PER_THREAD;
+        Log.i(TAG, "threads=" + (RECEIVER_THREADS + UI_THREADS) + ", ops=" + ops +
+                ", throughput=" + (ops * 1_000_000_000L / elapsed) + " ops/s" +
+                ", avg write " + avgWrite / 1000 + "us (uncontended " + uncontended / 1000 + "us)" +
+                ", est. lock wait " + Math.max(0, avgWrite - uncontended) / 1000 + "us/op" +
+                ", max write " + maxWriteNanos.get() / 1000 + "us" +
+                ", edit retries=" + retries);
+    }
+
+    private long measureUncontendedWrite(int alarmId) {
+        int iterations = 100;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            dbHelper.updateAlarm(alarmId, DatabaseHelper.FIELD_LABEL, alarm -> alarm.setLabel(""));
+        }
+        long perWrite = (System.nanoTime() - start) / iterations;
+        // Đưa version về 0 để phép kiểm tra cuối chỉ đếm lần ghi trong lúc tranh chấp
+        dbHelper.getWritableDatabase().execSQL("UPDATE alarms SET version=0");
+        return perWrite;
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // thử lại
+        }
+    }
+
+    private static int indexOf(List<Alarm> alarms, int id) {
+        for (int i = 0; i < alarms.size(); i++) {
+            if (alarms.get(i).getId() == id) {
+                return i;
+            }
+        }
+        throw new AssertionError("Unknown alarm " + id);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
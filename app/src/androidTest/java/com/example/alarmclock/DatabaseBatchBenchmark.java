@@ -0,0 +1,109 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * So sánh tốc độ ghi từng dòng với API ghi theo lô của DatabaseHelper (10, 1k, 10k báo thức).
+ * Kết quả được ghi ra logcat với tag "DbBatchBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseBatchBenchmark {
+    private static final String TAG = "DbBatchBenchmark";
+    private static final String DB_NAME = "alarms_benchmark.db";
+
+    private Context context;
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        dbHelper = new DatabaseHelper(context, DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void perRowVersusBatch() {
+        for (int count : new int[]{10, 1_000, 10_000}) {
+            List<Alarm> perRow = createAlarms(count);
+            long start = System.nanoTime();
+            for (Alarm alarm : perRow) {
+                alarm.setId((int) dbHelper.addAlarm(alarm));
+            }
+            long perRowInsert = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Alarm alarm : perRow) {
+                alarm.setLabel("Updated");
+                dbHelper.updateAlarm(alarm);
+            }
+            long perRowUpdate = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Alarm alarm : perRow) {
+                dbHelper.deleteAlarm(alarm.getId());
+            }
+            long perRowDelete = System.nanoTime() - start;
+
+            List<Alarm> batch = createAlarms(count);
+            start = System.nanoTime();
+            dbHelper.addAlarms(batch);
+            long batchInsert = System.nanoTime() - start;
+
+            for (Alarm alarm : batch) {
+                alarm.setLabel("Updated");
+            }
+            start = System.nanoTime();
+            dbHelper.updateAlarms(batch);
+            long batchUpdate = System.nanoTime() - start;
+
+            List<Integer> ids = new ArrayList<>();
+            for (Alarm alarm : batch) {
+                ids.add(alarm.getId());
+            }
+            assertEquals(count, dbHelper.getAlarmsByIds(ids).size());
+            start = System.nanoTime();
+            dbHelper.deleteAlarms(ids);
+            long batchDelete = System.nanoTime() - start;
+            assertTrue(dbHelper.getAllAlarms().isEmpty());
+
+            Log.i(TAG, "rows=" + count +
+                    " insert " + rowsPerSecond(count, perRowInsert) + " -> " + rowsPerSecond(count, batchInsert) + " rows/s" +
+                    ", update " + rowsPerSecond(count, perRowUpdate) + " -> " + rowsPerSecond(count, batchUpdate) + " rows/s" +
+                    ", delete " + rowsPerSecond(count, perRowDelete) + " -> " + rowsPerSecond(count, batchDelete) + " rows/s");
+        }
+    }
+
+    private List<Alarm> createAlarms(int count) {
+        List<Alarm> alarms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alarms.add(new Alarm(0, i % 24, i % 60, Arrays.asList(2, 3, 4, 5, 6), true, true,
+                    "Alarm " + i, true, 10));
+        }
+        return alarms;
+    }
+
+    private long rowsPerSecond(int rows, long nanos) {
+        return nanos == 0 ? 0 : rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Đo chi phí mở database (mỗi lần một helper mới so với một helper dùng chung, cùng file DB_NAME)
+ * và độ trễ đọc khi có luồng khác đang ghi, với WAL tắt và bật.
+ * Kết quả được ghi ra logcat với tag "DbConcurrencyBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyBenchmark {
+    private static final String TAG = "DbConcurrencyBenchmark";
+    private static final String DB_NAME = "alarms_concurrency.db";
+    private static final int ALARM_COUNT = 200;
+    private static final int READ_ITERATIONS = 200;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void openCost() {
+        int iterations = 50;
+        // Tạo file và chạy onCreate trước để cả hai cách chỉ đo việc mở một DB đã có
+        DatabaseHelper shared = new DatabaseHelper(context, DB_NAME);
+        shared.getReadableDatabase();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+            helper.getReadableDatabase();
+            helper.close();
+        }
+        long perCallOpen = (System.nanoTime() - start) / iterations;
+
+        // Như DatabaseHelper.getInstance: một helper giữ kết nối mở suốt process
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            shared.getReadableDatabase();
+        }
+        long sharedOpen = (System.nanoTime() - start) / iterations;
+        shared.close();
+
+        Log.i(TAG, "open per call: new helper " + perCallOpen / 1000 + "us, shared " + sharedOpen / 1000 + "us");
+    }
+
+    @Test
+    public void readLatencyUnderConcurrentWrites() throws Exception {
+        long rollback = measureReadLatency(false);
+        context.deleteDatabase(DB_NAME);
+        long wal = measureReadLatency(true);
+        Log.i(TAG, "avg read latency with concurrent writer: rollback journal " + rollback / 1000 +
+                "us, WAL " + wal / 1000 + "us");
+    }
+
+    private long measureReadLatency(boolean walEnabled) throws Exception {
+        DatabaseHelper helper = new DatabaseHelper(context, DB_NAME);
+        helper.setWriteAheadLoggingEnabled(walEnabled);
+
+        List<Alarm> alarms = new ArrayList<>();
+        for (int i = 0; i < ALARM_COUNT; i++) {
+            alarms.add(new Alarm(0, i % 24, i % 60, Arrays.asList(1, 7), true, true));
+        }
+        helper.addAlarms(alarms);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int i = 0;
+            while (running.get()) {
+                Alarm alarm = alarms.get(i++ % alarms.size());
+                helper.transition(alarm, alarm.isEnabled() ? AlarmState.EVENT_DISABLE : AlarmState.EVENT_SCHEDULE,
+                        System.currentTimeMillis());
+            }
+        });
+        writer.start();
+
+        long total = 0;
+        for (int i = 0; i < READ_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            assertEquals(ALARM_COUNT, helper.getAllAlarms().size());
+            total += System.nanoTime() - start;
+        }
+
+        running.set(false);
+        writer.join();
+        helper.close();
+        return total / READ_ITERATIONS;
+    }
+}
@@ -1,22 +1,24 @@
 package com.example.alarmclock;
 
-import java.io.Serializable;
+import android.os.Parcel;
+import android.os.Parcelable;
+
 import java.util.List;
 import java.util.ArrayList;
 
-public class Alarm implements Serializable {
+public class Alarm implements Parcelable {
     private int id;
     private int hour;
     private int minute;
-    private List<Integer> daysOfWeek;
+    private int daysMask; // bit (day - 1) cho mỗi ngày Calendar.DAY_OF_WEEK 1-7
     private boolean snooze;
-    private boolean enabled;
+    private int state; // AlarmState.*, enabled và isSnoozing được suy ra từ đây
     private String label;
     private boolean vibrationEnabled;
     private int snoozeDuration; // in minutes
     private String ringtone;
-    private boolean isSnoozing;
     private long nextAlarmTime; // timestamp for next alarm
+    private int version; // Cột version trong DB, tăng sau mỗi lần ghi; không đi qua AlarmCodec
 
     // Constructor for backward compatibility
     public Alarm(int id, int hour, int minute, List<Integer> daysOfWeek, boolean snooze, boolean enabled) {
@@ -29,17 +31,39 @@ public class Alarm implements Serializable {
         this.id = id;
         this.hour = hour;
         this.minute = minute;
-        this.daysOfWeek = daysOfWeek != null ? new ArrayList<>(daysOfWeek) : new ArrayList<>();
+        this.daysMask = DaysOfWeek.fromList(daysOfWeek);
         this.snooze = snooze;
-        this.enabled = enabled;
+        this.state = enabled ? AlarmState.SCHEDULED : AlarmState.IDLE;
         this.label = label != null ? label : "";
         this.vibrationEnabled = vibrationEnabled;
         this.snoozeDuration = snoozeDuration;
         this.ringtone = "default";
-        this.isSnoozing = false;
         this.nextAlarmTime = 0;
     }
 
+    // Parcelable dùng chung layout nhị phân với AlarmCodec
+    public static final Creator<Alarm> CREATOR = new Creator<Alarm>() {
+        @Override
+        public Alarm createFromParcel(Parcel in) {
+            return AlarmCodec.decode(in.createByteArray());
+        }
+
+        @Override
+        public Alarm[] newArray(int size) {
+            return new Alarm[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeByteArray(AlarmCodec.encode(this));
+    }
+
     // Getters
     public int getId() {
         return id;
@@ -54,7 +78,11 @@ public class Alarm implements Serializable {
     }
 
     public List<Integer> getDaysOfWeek() {
-        return new ArrayList<>(daysOfWeek);
+        return DaysOfWeek.toList(daysMask);
+    }
+
+    public int getDaysMask() {
+        return daysMask;
     }
 
     public boolean isSnooze() {
@@ -62,7 +90,11 @@ public class Alarm implements Serializable {
     }
 
     public boolean isEnabled() {
-        return enabled;
+        return AlarmState.isEnabled(state);
+    }
+
+    public int getState() {
+        return state;
     }
 
     public String getLabel() {
@@ -82,13 +114,17 @@ public class Alarm implements Serializable {
     }
 
     public boolean isSnoozing() {
-        return isSnoozing;
+        return state == AlarmState.SNOOZED;
     }
 
     public long getNextAlarmTime() {
         return nextAlarmTime;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     // Setters
     public void setId(int id) {
         this.id = id;
@@ -103,15 +139,26 @@ public class Alarm implements Serializable {
     }
 
     public void setDaysOfWeek(List<Integer> daysOfWeek) {
-        this.daysOfWeek = daysOfWeek != null ? new ArrayList<>(daysOfWeek) : new ArrayList<>();
+        this.daysMask = DaysOfWeek.fromList(daysOfWeek);
+    }
+
+    public void setDaysMask(int daysMask) {
+        this.daysMask = daysMask & DaysOfWeek.ALL;
     }
 
     public void setSnooze(boolean snooze) {
         this.snooze = snooze;
     }
 
+    // Dùng cho dữ liệu từ giao diện/AlarmCodec; thay đổi đã lưu đi qua DatabaseHelper.transitionAll
     public void setEnabled(boolean enabled) {
-        this.enabled = enabled;
+        if (enabled != isEnabled()) {
+            this.state = enabled ? AlarmState.SCHEDULED : AlarmState.IDLE;
+        }
+    }
+
+    public void setState(int state) {
+        this.state = state;
     }
 
     public void setLabel(String label) {
@@ -131,136 +178,130 @@ public class Alarm implements Serializable {
     }
 
     public void setSnoozing(boolean snoozing) {
-        this.isSnoozing = snoozing;
+        if (snoozing) {
+            this.state = AlarmState.SNOOZED;
+        } else if (state == AlarmState.SNOOZED) {
+            this.state = AlarmState.SCHEDULED;
+        }
     }
 
     public void setNextAlarmTime(long nextAlarmTime) {
         this.nextAlarmTime = nextAlarmTime;
     }
 
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    // Chép các cột người dùng sửa được (giờ, ngày, nhãn, snooze, rung, nhạc chuông)
+    public void copySettingsFrom(Alarm other) {
+        this.hour = other.hour;
+        this.minute = other.minute;
+        this.daysMask = other.daysMask;
+        this.snooze = other.snooze;
+        this.label = other.label;
+        this.vibrationEnabled = other.vibrationEnabled;
+        this.snoozeDuration = other.snoozeDuration;
+        this.ringtone = other.ringtone;
+    }
+
+    // Chép toàn bộ dòng đã đọc từ DB, kể cả trạng thái và version
+    public void copyFrom(Alarm other) {
+        copySettingsFrom(other);
+        this.state = other.state;
+        this.nextAlarmTime = other.nextAlarmTime;
+        this.version = other.version;
+    }
+
     // Helper methods
     public String getFormattedTime() {
-        return String.format("%02d:%02d", hour, minute);
+        return AlarmFormatter.time24(hour, minute);
     }
 
     public String getAmPm() {
-        return hour >= 12 ? "PM" : "AM";
+        return AlarmFormatter.amPm(hour);
     }
 
     public String getFormattedTime12Hour() {
-        int displayHour = hour == 0 ? 12 : (hour > 12 ? hour - 12 : hour);
-        return String.format("%d:%02d", displayHour, minute);
+        return AlarmFormatter.time12(hour, minute);
     }
 
     public String getDaysString() {
-        if (daysOfWeek.isEmpty()) {
-            return "Once";
-        }
-
-        if (daysOfWeek.size() == 7) {
-            return "Daily";
-        }
-
-        // Check for weekdays (Mon-Fri)
-        if (daysOfWeek.size() == 5 &&
-                daysOfWeek.contains(2) && daysOfWeek.contains(3) &&
-                daysOfWeek.contains(4) && daysOfWeek.contains(5) &&
-                daysOfWeek.contains(6)) {
-            return "Weekdays";
-        }
-
-        // Build custom string
-        String[] dayNames = {"Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
-        StringBuilder sb = new StringBuilder();
-
-        for (int i = 1; i <= 7; i++) {
-            if (daysOfWeek.contains(i)) {
-                if (sb.length() > 0) {
-                    sb.append(", ");
-                }
-                sb.append(dayNames[i - 1]);
-            }
-        }
-
-        return sb.toString();
+        return AlarmFormatter.days(daysMask);
     }
 
     public boolean isRepeating() {
-        return !daysOfWeek.isEmpty();
+        return daysMask != DaysOfWeek.NONE;
     }
 
     public boolean shouldTriggerToday(int dayOfWeek) {
-        return daysOfWeek.contains(dayOfWeek);
+        return DaysOfWeek.contains(daysMask, dayOfWeek);
     }
 
     // Calculate next alarm time
     public long calculateNextAlarmTime() {
-        java.util.Calendar calendar = java.util.Calendar.getInstance();
-        java.util.Calendar now = java.util.Calendar.getInstance();
-
-        // Đặt thời gian báo thức
-        calendar.set(java.util.Calendar.HOUR_OF_DAY, hour);
-        calendar.set(java.util.Calendar.MINUTE, minute);
-        calendar.set(java.util.Calendar.SECOND, 0);
-        calendar.set(java.util.Calendar.MILLISECOND, 0);
-
-        // Lấy ngày hiện tại (1=Chủ nhật, 2=Thứ hai, ..., 7=Thứ bảy)
-        int currentDayOfWeek = now.get(java.util.Calendar.DAY_OF_WEEK);
-
-        // Nếu không có ngày nào được chọn (báo thức chạy một lần)
-        if (daysOfWeek.isEmpty()) {
-            // Nếu thời gian đã qua trong ngày hiện tại, chuyển sang ngày tiếp theo
-            if (calendar.before(now)) {
-                calendar.add(java.util.Calendar.DAY_OF_MONTH, 1);
-            }
-            return calendar.getTimeInMillis();
-        }
-
-        // Tìm ngày tiếp theo trong danh sách daysOfWeek
-        int daysToAdd = 7; // Tối đa 7 ngày để tìm ngày tiếp theo
-        for (int i = 0; i < 7; i++) {
-            int nextDay = (currentDayOfWeek + i - 1) % 7 + 1; // Chuyển đổi sang 1-7
-            if (daysOfWeek.contains(nextDay)) {
-                // Nếu là ngày hiện tại, kiểm tra xem thời gian có còn hợp lệ không
-                if (i == 0 && calendar.after(now)) {
-                    daysToAdd = 0; // Dùng ngay ngày hiện tại
-                    break;
-                } else if (i > 0) {
-                    daysToAdd = i; // Chọn ngày tiếp theo phù hợp
-                    break;
-                }
-            }
-        }
-
-        // Thêm số ngày cần thiết
-        calendar.add(java.util.Calendar.DAY_OF_MONTH, daysToAdd);
+        return calculateNextAlarmTime(System.currentTimeMillis());
+    }
 
-        return calendar.getTimeInMillis();
+    // Dùng chung một mốc now khi tính cho cả danh sách
+    public long calculateNextAlarmTime(long now) {
+        return TriggerEngine.nextTrigger(hour, minute, daysMask, now);
     }
 
     public String getTimeUntilNext() {
         if (nextAlarmTime == 0) {
             return "";
         }
+        char[] buffer = new char[AlarmFormatter.COUNTDOWN_CAPACITY];
+        int length = AlarmFormatter.countdown(nextAlarmTime - System.currentTimeMillis(), buffer);
+        return new String(buffer, 0, length);
+    }
+
+    // Ghi chuỗi đếm ngược vào buffer có sẵn, trả về độ dài (0 nếu chưa có thời điểm kích hoạt)
+    public int getTimeUntilNext(long now, char[] buffer) {
+        if (nextAlarmTime == 0) {
+            return 0;
+        }
+        return AlarmFormatter.countdown(nextAlarmTime - now, buffer);
+    }
 
-        long currentTime = System.currentTimeMillis();
-        long timeDiff = nextAlarmTime - currentTime;
+    // Tập ngày trong tuần dạng bitmask 7 bit: bit (day - 1) ứng với Calendar.DAY_OF_WEEK day (1=CN ... 7=T7)
+    public static final class DaysOfWeek {
+        public static final int NONE = 0;
+        public static final int WEEKDAYS = 0b0111110; // Thứ hai - Thứ sáu
+        public static final int ALL = 0b1111111;
 
-        if (timeDiff <= 0) {
-            return "Now";
+        private DaysOfWeek() {
         }
 
-        long days = timeDiff / (1000 * 60 * 60 * 24);
-        long hours = (timeDiff % (1000 * 60 * 60 * 24)) / (1000 * 60 * 60);
-        long minutes = (timeDiff % (1000 * 60 * 60)) / (1000 * 60);
+        public static int bit(int day) {
+            return 1 << (day - 1);
+        }
 
-        if(days > 0){
-            return String.format("Rings in %dd %dh %dm", days, hours, minutes);
+        public static boolean contains(int mask, int day) {
+            return day >= 1 && day <= 7 && (mask & bit(day)) != 0;
         }
-        else if (hours > 0) {
-            return String.format("Rings in %dh %dm", hours, minutes);
-        } else {
-            return String.format("Rings in %dm", minutes);
+
+        public static int fromList(List<Integer> days) {
+            int mask = NONE;
+            if (days != null) {
+                for (Integer day : days) {
+                    if (day != null && day >= 1 && day <= 7) {
+                        mask |= bit(day);
+                    }
+                }
+            }
+            return mask;
+        }
+
+        public static List<Integer> toList(int mask) {
+            List<Integer> days = new ArrayList<>(Integer.bitCount(mask & ALL));
+            for (int day = 1; day <= 7; day++) {
+                if (contains(mask, day)) {
+                    days.add(day);
+                }
+            }
+            return days;
         }
     }
 
@@ -270,7 +311,7 @@ public class Alarm implements Serializable {
                 "id=" + id +
                 ", time=" + getFormattedTime() +
                 ", days=" + getDaysString() +
-                ", enabled=" + enabled +
+                ", state=" + state +
                 ", label='" + label + '\'' +
                 '}';
     }
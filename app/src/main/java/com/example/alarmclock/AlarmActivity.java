@@ -1,40 +1,77 @@
 package com.example.alarmclock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.media.Ringtone;
-import android.media.RingtoneManager;
-import android.net.Uri;
+import android.content.ServiceConnection;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
+import android.os.IBinder;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.Button;
+import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.app.NotificationManagerCompat;
 
-public class AlarmActivity extends AppCompatActivity {
+import java.util.ArrayList;
+import java.util.List;
+
+public class AlarmActivity extends AppCompatActivity implements RingingService.SessionListener {
 
     private int alarmId;
-    private boolean snooze;
-    private Ringtone ringtone; // Thêm biến để quản lý âm thanh
-    private Handler handler;
-    private Runnable autoSnoozeRunnable;
-    private static final long AUTO_SNOOZE_DELAY = 180 * 1000; // 1 phút
-    private static final long AUTO_SNOOZE_TIME = 10 * 60 * 1000; // 10 phút
+    // Âm thanh, auto-snooze và danh sách báo thức đang kêu do RingingService giữ; activity chỉ là giao diện điều khiển
+    private RingingService ringingService;
+    private boolean bound;
+    private ArrayList<Integer> sessionAlarmIds = new ArrayList<>();
+
+    private TextView timeText;
+    private TextView amPmText;
+    private TextView labelText;
+    private Button snoozeButton;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            ringingService = ((RingingService.LocalBinder) service).getService();
+            if (!ringingService.isRinging()) {
+                // Phiên đã kết thúc (đã tắt/snooze) trong lúc activity được tạo lại
+                finish();
+                return;
+            }
+            ringingService.setSessionListener(AlarmActivity.this);
+            onSessionChanged(ringingService.activeAlarmIds(), ringingService.activeAlarms(),
+                    ringingService.isSnoozeAllowed());
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            ringingService = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        if (getIntent().getBooleanExtra("finish", false)) {
-            finish();
-            return;
-        }
+        // Get alarm details from intent
+        alarmId = getIntent().getIntExtra("alarm_id", 0);
+
+        long createStart = FireTrace.begin(FireTrace.ACTIVITY_CREATE);
         super.onCreate(savedInstanceState);
+        long contentViewStart = FireTrace.begin(FireTrace.SET_CONTENT_VIEW);
         setContentView(R.layout.activity_alarm);
+        FireTrace.end(alarmId, FireTrace.SET_CONTENT_VIEW, contentViewStart);
+
+        // Ghi mốc khung hình đầu tiên rồi bỏ listener
+        View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                FireTrace.mark(alarmId, FireTrace.FIRST_FRAME);
+                return true;
+            }
+        });
 
         // Allow activity to show over lock screen and turn on screen
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
@@ -46,144 +83,94 @@ public class AlarmActivity extends AppCompatActivity {
                     WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         }
 
-        // Get alarm details from intent
-        alarmId = getIntent().getIntExtra("alarm_id", 0);
-        snooze = getIntent().getBooleanExtra("snooze", false);
-
-        String ringtoneUri = getIntent().getStringExtra("ringtone"); // Lấy URI ringtone
-
-        // Phát âm thanh báo thức
-        playAlarmSound(ringtoneUri);
-
-        // Thiết lập Handler để tự động snooze sau 1 phút
-        handler = new Handler(Looper.getMainLooper());
-        autoSnoozeRunnable = () -> {
-            // Lên lịch báo thức lại sau 10 phút
-            scheduleAutoSnooze();
-            stopAlarmSound();
-            finish();
-        };
-        handler.postDelayed(autoSnoozeRunnable, AUTO_SNOOZE_DELAY);
-
-        Button snoozeButton = findViewById(R.id.button_snooze);
+        timeText = findViewById(R.id.text_time);
+        amPmText = findViewById(R.id.text_ampm);
+        labelText = findViewById(R.id.text_alarm_label);
+        snoozeButton = findViewById(R.id.button_snooze);
         Button stopButton = findViewById(R.id.button_stop);
 
-        // Snooze button
-        snoozeButton.setEnabled(!snooze);
+        // Snooze/Stop áp dụng cho mọi báo thức đang kêu trong phiên
         snoozeButton.setOnClickListener(v -> {
-            handler.removeCallbacks(autoSnoozeRunnable); // Hủy đếm ngược auto-snooze
-
-            // Cập nhật trạng thái báo thức
-            DatabaseHelper dbHelper = new DatabaseHelper(AlarmActivity.this);
-            Alarm alarm = dbHelper.getAllAlarms().stream()
-                    .filter(a -> a.getId() == alarmId)
-                    .findFirst()
-                    .orElse(null);
-
-            if (alarm != null) {
-                alarm.setSnoozing(true); // Đặt trạng thái snooze
-                alarm.setEnabled(true); // Đảm bảo báo thức vẫn bật
-                dbHelper.updateAlarm(alarm); // Cập nhật vào cơ sở dữ liệu
-                Log.d("AlarmActivity", "Set alarm to snoozing: ID=" + alarmId);
-            }
-
-            // Gửi Intent tới SnoozeReceiver
             Intent snoozeIntent = new Intent(AlarmActivity.this, SnoozeReceiver.class);
-            snoozeIntent.putExtra("alarm_id", alarmId);
-            snoozeIntent.putExtra("ringtone", getIntent().getStringExtra("ringtone"));
+            snoozeIntent.putIntegerArrayListExtra(RingingService.EXTRA_ALARM_IDS, sessionIds());
             sendBroadcast(snoozeIntent);
-
-            stopAlarmSound(); // Dừng âm thanh
             finish(); // Đóng Activity
         });
 
-        // Stop button
         stopButton.setOnClickListener(v -> {
-            handler.removeCallbacks(autoSnoozeRunnable); // Hủy đếm ngược
-            DatabaseHelper dbHelper = new DatabaseHelper(AlarmActivity.this);
-            Alarm alarm = dbHelper.getAllAlarms().stream()
-                    .filter(a -> a.getId() == alarmId)
-                    .findFirst()
-                    .orElse(null);
-
-            if (alarm != null && alarm.getDaysOfWeek().isEmpty()) {
-                alarm.setEnabled(false); // Tắt báo thức một lần
-                alarm.setNextAlarmTime(0);
-                dbHelper.updateAlarm(alarm); // Cập nhật vào cơ sở dữ liệu
-            }
-
-            // Hủy notification
-            NotificationManagerCompat.from(this).cancel(alarmId);
-
-            // Hủy báo thức trong AlarmManager
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent intent = new Intent(this, AlarmReceiver.class);
-            intent.putExtra("alarm_id", alarmId);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    this,
-                    alarmId,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            alarmManager.cancel(pendingIntent);  // ← dòng này là quan trọng nhất
-            stopAlarmSound(); // Dừng âm thanh khi snooze
+            Intent stopIntent = new Intent(AlarmActivity.this, StopReceiver.class);
+            stopIntent.putIntegerArrayListExtra(RingingService.EXTRA_ALARM_IDS, sessionIds());
+            sendBroadcast(stopIntent);
             finish();
         });
 
+        FireTrace.end(alarmId, FireTrace.ACTIVITY_CREATE, createStart);
     }
-    private void playAlarmSound(String ringtoneUri) {
-        try {
-            // Nếu không có ringtone được chỉ định, sử dụng âm thanh báo thức mặc định
-            Uri alarmUri = ringtoneUri != null && !ringtoneUri.equals("default") ?
-                    Uri.parse(ringtoneUri) : RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            if (alarmUri == null) {
-                // Fallback nếu không có âm thanh báo thức mặc định
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-            }
-            ringtone = RingtoneManager.getRingtone(this, alarmUri);
-            if (ringtone != null) {
-                ringtone.play();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        // Báo thức kêu cùng lúc: activity đang mở được dùng lại, danh sách cập nhật qua onSessionChanged
+        setIntent(intent);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bound = bindService(new Intent(this, RingingService.class), connection, Context.BIND_AUTO_CREATE);
     }
 
-    private void stopAlarmSound() {
-        if (ringtone != null && ringtone.isPlaying()) {
-            ringtone.stop();
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Không dừng âm thanh ở đây: service tiếp tục kêu khi activity bị tạo lại hoặc bị che
+        if (ringingService != null) {
+            ringingService.setSessionListener(null);
+            ringingService = null;
+        }
+        if (bound) {
+            unbindService(connection);
+            bound = false;
         }
     }
 
-    private void scheduleAutoSnooze() {
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        Alarm alarm = dbHelper.getAllAlarms().stream()
-                .filter(a -> a.getId() == alarmId)
-                .findFirst()
-                .orElse(null);
-
-        if (alarm != null) {
-            alarm.setSnoozing(true); // Đặt trạng thái snooze
-            alarm.setEnabled(true); // Đảm bảo báo thức vẫn bật
-            dbHelper.updateAlarm(alarm); // Cập nhật vào cơ sở dữ liệu
-            Log.d("AlarmActivity", "Set alarm to snoozing: ID=" + alarmId);
-
-            AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            Intent snoozeIntent = new Intent(this, AlarmReceiver.class);
-            snoozeIntent.putExtra("alarm_id", alarmId);
-            snoozeIntent.putExtra("snooze", true);
-            snoozeIntent.putExtra("ringtone", getIntent().getStringExtra("ringtone"));
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(this, alarmId, snoozeIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-            long snoozeTime = System.currentTimeMillis() + AUTO_SNOOZE_TIME; // 10 phút
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, snoozeTime, pendingIntent);
-            Log.d("AlarmActivity", "Scheduled auto-snooze for alarm ID=" + alarmId);
+    @Override
+    public void onSessionChanged(ArrayList<Integer> alarmIds, List<Alarm> alarms, boolean snoozeAllowed) {
+        sessionAlarmIds = alarmIds;
+        snoozeButton.setEnabled(snoozeAllowed);
+
+        // Bản chụp từ RingingService: không đọc DB trên main thread khi báo thức khác tham gia phiên
+        if (alarms.isEmpty()) {
+            return;
         }
+        Alarm first = alarms.get(0);
+        timeText.setText(first.getFormattedTime12Hour());
+        amPmText.setText(first.getAmPm());
+
+        StringBuilder labels = new StringBuilder();
+        for (Alarm alarm : alarms) {
+            if (labels.length() > 0) {
+                labels.append('\n');
+            }
+            if (alarms.size() > 1) {
+                labels.append(alarm.getFormattedTime()).append("  ");
+            }
+            labels.append(TextUtils.isEmpty(alarm.getLabel()) ? "Alarm" : alarm.getLabel());
+        }
+        labelText.setText(labels);
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        handler.removeCallbacks(autoSnoozeRunnable);
-        stopAlarmSound(); // Đảm bảo dừng âm thanh khi activity bị hủy
+    public void onSessionEnded() {
+        finish();
+    }
+
+    private ArrayList<Integer> sessionIds() {
+        if (sessionAlarmIds.isEmpty()) {
+            ArrayList<Integer> ids = new ArrayList<>();
+            ids.add(alarmId);
+            return ids;
+        }
+        return sessionAlarmIds;
     }
-}
\ No newline at end of file
+}
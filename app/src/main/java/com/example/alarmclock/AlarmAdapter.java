@@ -1,42 +1,73 @@
 package com.example.alarmclock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
-import android.content.Intent;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CompoundButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.materialswitch.MaterialSwitch;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-public class AlarmAdapter extends RecyclerView.Adapter<AlarmAdapter.AlarmViewHolder> {
+// Danh sách được so sánh với danh sách trước trên luồng nền (AsyncListDiffer), chỉ dòng thay đổi mới bị bind lại
+public class AlarmAdapter extends ListAdapter<Alarm, AlarmAdapter.AlarmViewHolder> {
     private static final String TAG = "AlarmAdapter";
-    private List<Alarm> alarms;
+
+    // Mọi lần ghi dòng đều tăng version nên cùng version nghĩa là cùng nội dung trong DB;
+    // state và next_alarm_time được so thêm vì AlarmScheduler có thể tính lại next_alarm_time trong bộ nhớ
+    private static final DiffUtil.ItemCallback<Alarm> DIFF_CALLBACK = new DiffUtil.ItemCallback<Alarm>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Alarm oldItem, @NonNull Alarm newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Alarm oldItem, @NonNull Alarm newItem) {
+            return oldItem.getVersion() == newItem.getVersion()
+                    && oldItem.getState() == newItem.getState()
+                    && oldItem.getNextAlarmTime() == newItem.getNextAlarmTime();
+        }
+
+        // Chỉ bind lại phần đã đổi; khác version nhưng không phần nào hiển thị đổi (vd đổi nhạc chuông) thì 0
+        @Override
+        public Object getChangePayload(@NonNull Alarm oldItem, @NonNull Alarm newItem) {
+            return AlarmRowBinder.changes(oldItem, newItem);
+        }
+    };
+
     private OnAlarmClickListener listener;
     private DatabaseHelper dbHelper;
+    private AlarmScheduler scheduler;
     private Context context;
+    private final AlarmPalette palette;
+    private final Set<AlarmViewHolder> attachedHolders = new HashSet<>();
 
     public interface OnAlarmClickListener {
         void onAlarmClick(Alarm alarm);
         void onAlarmToggle(Alarm alarm, boolean enabled); // xu ly khi bat tat 1 bao thuc
     }
 
-    public AlarmAdapter(List<Alarm> alarms, OnAlarmClickListener listener, Context context) {
-        this.alarms = alarms;
+    public AlarmAdapter(OnAlarmClickListener listener, Context context) {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.listener = listener;
         this.context = context;
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        this.scheduler = AlarmScheduler.getInstance(context);
+        this.palette = resolvePalette(context);
     }
 
     @NonNull
@@ -44,100 +75,124 @@ public class AlarmAdapter extends RecyclerView.Adapter<AlarmAdapter.AlarmViewHol
     public AlarmViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_alarm, parent, false);
-        return new AlarmViewHolder(view);
+        AlarmViewHolder holder = new AlarmViewHolder(view);
+        holder.labelText.setTextColor(palette.label);
+        setupClickListeners(holder);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull AlarmViewHolder holder, int position) {
-        Alarm alarm = alarms.get(position);
-        bindAlarmData(holder, alarm);
-        setupClickListeners(holder, alarm, position);
+        bind(holder, position, AlarmRowBinder.FULL);
     }
 
-    // Cập nhật giao diện cho từng báo thức.
-    private void bindAlarmData(@NonNull AlarmViewHolder holder, Alarm alarm) {
-        // Time display
-        holder.timeText.setText(alarm.getFormattedTime12Hour());
-        holder.amPmText.setText(alarm.getAmPm());
-
-        // Days display
-        holder.daysText.setText(alarm.getDaysString());
-
-        // Alarm label
-        if (!alarm.getLabel().isEmpty()) {
-            holder.labelText.setText(alarm.getLabel());
-            holder.labelText.setVisibility(View.VISIBLE);
-        } else {
-            holder.labelText.setVisibility(View.GONE);
+    // payloads là các mặt nạ AlarmRowBinder.*_CHANGED / COUNTDOWN_TICK; rỗng khi dòng cần bind toàn bộ
+    @Override
+    public void onBindViewHolder(@NonNull AlarmViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            bind(holder, position, AlarmRowBinder.FULL);
+            return;
         }
-
-        // Next alarm info
-        if (alarm.isEnabled() && alarm.getNextAlarmTime() > 0) {
-            holder.nextAlarmText.setText(alarm.getTimeUntilNext());
-            holder.nextAlarmText.setVisibility(View.VISIBLE);
-        } else {
-            holder.nextAlarmText.setVisibility(View.GONE);
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= payload instanceof Integer ? (Integer) payload : AlarmRowBinder.FULL;
         }
+        bind(holder, position, changes);
+    }
 
-        // Snooze status
-        if (alarm.isSnoozing()) {
-            holder.snoozeLayout.setVisibility(View.VISIBLE);
-            holder.snoozeText.setText("Snoozing for " + alarm.getSnoozeDuration() + " min");
-        } else {
-            holder.snoozeLayout.setVisibility(View.GONE);
-        }
+    private void bind(@NonNull AlarmViewHolder holder, int position, int changes) {
+        AlarmRowBinder.bind(holder, getItem(position), changes, System.currentTimeMillis(),
+                holder.countdownBuffer, palette);
+    }
 
-        // Switch state
-        holder.enabledSwitch.setOnCheckedChangeListener(null); // Prevent unwanted triggers
-        holder.enabledSwitch.setChecked(alarm.isEnabled());
+    // Gọi mỗi phút: chỉ cập nhật dòng đếm ngược của các dòng đang gắn vào RecyclerView.
+    // Dòng khác được bind đầy đủ hoặc cập nhật trong onViewAttachedToWindow khi xuất hiện lại.
+    public void tickCountdowns() {
+        long now = System.currentTimeMillis();
+        for (AlarmViewHolder holder : attachedHolders) {
+            bindCountdown(holder, now);
+        }
+    }
 
-        // Visual state based on enabled/disabled
-        updateAlarmVisualState(holder, alarm.isEnabled());
+    // View trong cache của RecyclerView được gắn lại mà không bind nên đếm ngược có thể đã cũ
+    @Override
+    public void onViewAttachedToWindow(@NonNull AlarmViewHolder holder) {
+        attachedHolders.add(holder);
+        bindCountdown(holder, System.currentTimeMillis());
+    }
 
-        // Status indicator
-        holder.statusIndicator.setActivated(alarm.isEnabled());
+    @Override
+    public void onViewDetachedFromWindow(@NonNull AlarmViewHolder holder) {
+        attachedHolders.remove(holder);
+    }
 
-        // Alarm icon color based on state
-        int iconColor = alarm.isEnabled() ?
-                context.getResources().getColor(R.color.alarm_icon_color) :
-                context.getResources().getColor(R.color.alarm_icon_color_disabled);
-        holder.alarmIcon.setColorFilter(iconColor);
+    private void bindCountdown(@NonNull AlarmViewHolder holder, long now) {
+        int position = holder.getBindingAdapterPosition();
+        if (position != RecyclerView.NO_POSITION) {
+            AlarmRowBinder.bind(holder, getItem(position), AlarmRowBinder.COUNTDOWN_TICK, now,
+                    holder.countdownBuffer, palette);
+        }
     }
 
-    private void setupClickListeners(@NonNull AlarmViewHolder holder, Alarm alarm, int position) {
+    // Listener được gắn một lần khi tạo ViewHolder. Báo thức được lấy theo vị trí lúc người dùng bấm:
+    // dòng không đổi nội dung sẽ không được bind lại nên không giữ tham chiếu Alarm của lần bind trước
+    private void setupClickListeners(@NonNull AlarmViewHolder holder) {
         // Switch toggle listener
-        holder.enabledSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+        holder.checkedListener = (buttonView, isChecked) -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            Alarm alarm = getItem(position);
             Log.d(TAG, "Toggled alarm: ID=" + alarm.getId() + ", Enabled=" + isChecked);
 
-            alarm.setEnabled(isChecked);
-            updateAlarmVisualState(holder, isChecked);
-
-            // Update database
-            dbHelper.updateAlarm(alarm);
+            // transition sửa chính phần tử của danh sách nên DiffUtil không thấy thay đổi sau đó;
+            // giữ bản trước để bind đúng các phần đã đổi (tắt khi đang snooze cũng bỏ dòng snooze)
+            Alarm before = new Alarm(alarm.getId(), alarm.getHour(), alarm.getMinute(), null, false, false);
+            before.copyFrom(alarm);
+
+            // Update database: một câu UPDATE chỉ ghi các cột trạng thái. Nếu receiver vừa đổi dòng này,
+            // alarm được đọc lại và áp dụng lại trên bản mới nhất.
+            if (!dbHelper.transition(alarm, isChecked ? AlarmState.EVENT_SCHEDULE : AlarmState.EVENT_DISABLE,
+                    System.currentTimeMillis())) {
+                // Trạng thái trong DB không cho phép (vd đang kêu) hoặc đã đúng sẵn
+                Log.d(TAG, "Toggle ignored: ID=" + alarm.getId() + ", State=" + alarm.getState());
+            }
+            if (alarm.isEnabled() != isChecked) {
+                // Vẽ lại theo trạng thái thật sau khi listener của lần bind này trả về
+                holder.itemView.post(() -> {
+                    int current = holder.getBindingAdapterPosition();
+                    if (current != RecyclerView.NO_POSITION) {
+                        notifyItemChanged(current, AlarmRowBinder.FULL);
+                    }
+                });
+                return;
+            }
 
             // Schedule or cancel alarm
             if (isChecked) {
-                scheduleAlarm(context, alarm);
-                // Update next alarm time display
-                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-                holder.nextAlarmText.setText(alarm.getTimeUntilNext());
-                holder.nextAlarmText.setVisibility(View.VISIBLE);
+                scheduler.schedule(alarm);
             } else {
-                cancelAlarm(context, alarm.getId());
-                holder.nextAlarmText.setVisibility(View.GONE);
+                scheduler.cancel(alarm.getId());
             }
-
-            // Update status indicator
-            holder.statusIndicator.setActivated(isChecked);
+            // Màu, chỉ báo, đếm ngược và dòng snooze theo trạng thái mới
+            AlarmRowBinder.bind(holder, alarm, AlarmRowBinder.changes(before, alarm), System.currentTimeMillis(),
+                    holder.countdownBuffer, palette);
 
             // Notify listener
             if (listener != null) {
                 listener.onAlarmToggle(alarm, isChecked);
             }
-        });
+        };
+        holder.enabledSwitch.setOnCheckedChangeListener(holder.checkedListener);
 
         // Card click listener for editing
         holder.cardView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            Alarm alarm = getItem(position);
             Log.d(TAG, "Item clicked at position: " + position + ", Alarm ID: " + alarm.getId());
             if (listener != null) {
                 listener.onAlarmClick(alarm);
@@ -147,124 +202,30 @@ public class AlarmAdapter extends RecyclerView.Adapter<AlarmAdapter.AlarmViewHol
         });
     }
 
-    private void updateAlarmVisualState(@NonNull AlarmViewHolder holder, boolean enabled) {
-        // Update text colors
-        int timeColor = enabled ?
-                context.getResources().getColor(R.color.alarm_time_color) :
-                context.getResources().getColor(R.color.alarm_time_color_disabled);
-        int secondaryColor = enabled ?
-                context.getResources().getColor(R.color.alarm_secondary_text) :
-                context.getResources().getColor(R.color.alarm_secondary_text_disabled);
-
-        holder.timeText.setTextColor(timeColor);
-        holder.amPmText.setTextColor(secondaryColor);
-        holder.daysText.setTextColor(secondaryColor);
-        holder.labelText.setTextColor(context.getResources().getColor(R.color.alarm_label_color));
-
-        // Update card background
-        int cardColor = enabled ?
-                context.getResources().getColor(R.color.alarm_card_background) :
-                context.getResources().getColor(R.color.alarm_card_background_disabled);
-        holder.cardView.setCardBackgroundColor(cardColor);
-
-        // Update card alpha
-        holder.cardView.setAlpha(enabled ? 1.0f : 0.7f);
+    private static AlarmPalette resolvePalette(Context context) {
+        return new AlarmPalette(
+                context.getColor(R.color.alarm_time_color),
+                context.getColor(R.color.alarm_time_color_disabled),
+                context.getColor(R.color.alarm_secondary_text),
+                context.getColor(R.color.alarm_secondary_text_disabled),
+                context.getColor(R.color.alarm_card_background),
+                context.getColor(R.color.alarm_card_background_disabled),
+                context.getColor(R.color.alarm_icon_color),
+                context.getColor(R.color.alarm_icon_color_disabled),
+                context.getColor(R.color.alarm_label_color));
     }
 
     @Override
-    public int getItemCount() {
-        return alarms.size();
-    }
-
-    // Alarm scheduling methods
-    private void scheduleAlarm(Context context, Alarm alarm) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, AlarmReceiver.class);
-
-        // Pass alarm data to receiver
-        intent.putExtra("alarm_id", alarm.getId());
-        intent.putExtra("alarm_hour", alarm.getHour());
-        intent.putExtra("alarm_minute", alarm.getMinute());
-        intent.putExtra("alarm_label", alarm.getLabel());
-        intent.putExtra("snooze_enabled", alarm.isSnooze());
-        intent.putExtra("snooze_duration", alarm.getSnoozeDuration());
-        intent.putExtra("vibration_enabled", alarm.isVibrationEnabled());
-        intent.putExtra("ringtone", alarm.getRingtone());
-
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                alarm.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        // Tính toán thời gian kích hoạt tiếp theo
-        long triggerTime = alarm.calculateNextAlarmTime();
-        alarm.setNextAlarmTime(triggerTime); // Cập nhật nextAlarmTime
-
-        if (alarmManager != null) {
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerTime,
-                    pendingIntent
-            );
-            Log.d(TAG, "Scheduled alarm: ID=" + alarm.getId() +
-                    ", Time=" + alarm.getFormattedTime() +
-                    ", TriggerTime=" + triggerTime);
-        }
-    }
-
-    private void cancelAlarm(Context context, int alarmId) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, AlarmReceiver.class);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                alarmId,
-                intent,
-                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        if (pendingIntent != null && alarmManager != null) {
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
-            Log.d(TAG, "Cancelled alarm: ID=" + alarmId);
-        }
-    }
-
-    // Public methods for fragment interaction
-    public void addAlarm(Alarm alarm) {
-        alarms.add(alarm);
-        notifyItemInserted(alarms.size() - 1);
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
-    public void updateAlarm(Alarm alarm) {
-        int index = findAlarmIndex(alarm.getId());
-        if (index != -1) {
-            alarms.set(index, alarm);
-            notifyItemChanged(index);
-        }
-    }
-
-    public void removeAlarm(int position) {
-        if (position >= 0 && position < alarms.size()) {
-            Alarm alarm = alarms.get(position);
-            cancelAlarm(context, alarm.getId());
-            alarms.remove(position);
-            notifyItemRemoved(position);
-        }
-    }
-
-    private int findAlarmIndex(int alarmId) {
-        for (int i = 0; i < alarms.size(); i++) {
-            if (alarms.get(i).getId() == alarmId) {
-                return i;
-            }
-        }
-        return -1;
+    public Alarm getAlarm(int position) {
+        return getItem(position);
     }
 
     // ViewHolder class with modern UI components
-    static class AlarmViewHolder extends RecyclerView.ViewHolder {
+    static class AlarmViewHolder extends RecyclerView.ViewHolder implements AlarmRowBinder.Row {
         CardView cardView;
         ImageView alarmIcon;
         TextView timeText;
@@ -276,6 +237,9 @@ public class AlarmAdapter extends RecyclerView.Adapter<AlarmAdapter.AlarmViewHol
         TextView snoozeText;
         MaterialSwitch enabledSwitch;
         View statusIndicator;
+        CompoundButton.OnCheckedChangeListener checkedListener;
+        // Buffer dùng lại cho chuỗi đếm ngược để bind không tạo String mới
+        final char[] countdownBuffer = new char[AlarmFormatter.COUNTDOWN_CAPACITY];
 
         AlarmViewHolder(View itemView) {
             super(itemView);
@@ -292,5 +256,72 @@ public class AlarmAdapter extends RecyclerView.Adapter<AlarmAdapter.AlarmViewHol
             enabledSwitch = itemView.findViewById(R.id.switch_enabled);
             statusIndicator = itemView.findViewById(R.id.status_indicator);
         }
+
+        @Override
+        public void setTime(String time, String amPm) {
+            timeText.setText(time);
+            amPmText.setText(amPm);
+        }
+
+        @Override
+        public void setDays(String days) {
+            daysText.setText(days);
+        }
+
+        @Override
+        public void setLabel(String label) {
+            if (!label.isEmpty()) {
+                labelText.setText(label);
+                labelText.setVisibility(View.VISIBLE);
+            } else {
+                labelText.setVisibility(View.GONE);
+            }
+        }
+
+        @Override
+        public void setCountdown(char[] buffer, int length) {
+            if (length > 0) {
+                nextAlarmText.setText(buffer, 0, length);
+                nextAlarmText.setVisibility(View.VISIBLE);
+            } else {
+                nextAlarmText.setVisibility(View.GONE);
+            }
+        }
+
+        @Override
+        public void setSnooze(String text) {
+            if (text != null) {
+                snoozeLayout.setVisibility(View.VISIBLE);
+                snoozeText.setText(text);
+            } else {
+                snoozeLayout.setVisibility(View.GONE);
+            }
+        }
+
+        @Override
+        public void setChecked(boolean checked) {
+            enabledSwitch.setOnCheckedChangeListener(null); // Prevent unwanted triggers
+            enabledSwitch.setChecked(checked);
+            enabledSwitch.setOnCheckedChangeListener(checkedListener);
+        }
+
+        @Override
+        public void setTextColors(int timeColor, int secondaryColor) {
+            timeText.setTextColor(timeColor);
+            amPmText.setTextColor(secondaryColor);
+            daysText.setTextColor(secondaryColor);
+        }
+
+        @Override
+        public void setCardStyle(int backgroundColor, float alpha) {
+            cardView.setCardBackgroundColor(backgroundColor);
+            cardView.setAlpha(alpha);
+        }
+
+        @Override
+        public void setStatus(boolean active, int iconColor) {
+            statusIndicator.setActivated(active);
+            alarmIcon.setColorFilter(iconColor);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.example.alarmclock;
+
+import android.content.Intent;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Mã hóa Alarm thành mảng byte gọn, có version, dùng cho Parcel và extra của Intent.
+// Layout v2 (big-endian):
+//   byte version | int id | byte hour | byte minute | byte daysMask | byte flags |
+//   short snoozeDuration | long nextAlarmTime | int len + UTF-8 label | int len + UTF-8 ringtone
+public final class AlarmCodec {
+    public static final String EXTRA_ALARM_DATA = "alarm_data";
+
+    static final byte VERSION = 2;
+    private static final int FIXED_SIZE = 1 + 4 + 1 + 1 + 1 + 1 + 2 + 8 + 4 + 4;
+
+    private static final int FLAG_SNOOZE = 1;
+    private static final int FLAG_ENABLED = 1 << 1;
+    private static final int FLAG_VIBRATION = 1 << 2;
+    private static final int FLAG_SNOOZING = 1 << 3;
+
+    private AlarmCodec() {
+    }
+
+    public static byte[] encode(Alarm alarm) {
+        byte[] label = alarm.getLabel().getBytes(StandardCharsets.UTF_8);
+        byte[] ringtone = alarm.getRingtone().getBytes(StandardCharsets.UTF_8);
+        int flags = (alarm.isSnooze() ? FLAG_SNOOZE : 0)
+                | (alarm.isEnabled() ? FLAG_ENABLED : 0)
+                | (alarm.isVibrationEnabled() ? FLAG_VIBRATION : 0)
+                | (alarm.isSnoozing() ? FLAG_SNOOZING : 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + label.length + ringtone.length);
+        buffer.put(VERSION);
+        buffer.putInt(alarm.getId());
+        buffer.put((byte) alarm.getHour());
+        buffer.put((byte) alarm.getMinute());
+        buffer.put((byte) alarm.getDaysMask());
+        buffer.put((byte) flags);
+        buffer.putShort((short) alarm.getSnoozeDuration());
+        buffer.putLong(alarm.getNextAlarmTime());
+        buffer.putInt(label.length);
+        buffer.put(label);
+        buffer.putInt(ringtone.length);
+        buffer.put(ringtone);
+        return buffer.array();
+    }
+
+    // Trả về null nếu dữ liệu hỏng hoặc thuộc version chưa biết
+    public static Alarm decode(byte[] data) {
+        if (data == null || data.length < FIXED_SIZE || data[0] != VERSION) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+            int id = buffer.getInt();
+            int hour = buffer.get();
+            int minute = buffer.get();
+            int daysMask = buffer.get();
+            int flags = buffer.get();
+            int snoozeDuration = buffer.getShort();
+            long nextAlarmTime = buffer.getLong();
+            String label = readString(buffer);
+            String ringtone = readString(buffer);
+
+            Alarm alarm = new Alarm(id, hour, minute, null,
+                    (flags & FLAG_SNOOZE) != 0,
+                    (flags & FLAG_ENABLED) != 0,
+                    label,
+                    (flags & FLAG_VIBRATION) != 0,
+                    snoozeDuration);
+            alarm.setDaysMask(daysMask);
+            alarm.setSnoozing((flags & FLAG_SNOOZING) != 0);
+            alarm.setRingtone(ringtone);
+            alarm.setNextAlarmTime(nextAlarmTime);
+            return alarm;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static void putExtra(Intent intent, Alarm alarm) {
+        intent.putExtra(EXTRA_ALARM_DATA, encode(alarm));
+    }
+
+    public static Alarm fromIntent(Intent intent) {
+        return decode(intent.getByteArrayExtra(EXTRA_ALARM_DATA));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -26,10 +26,7 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.materialswitch.MaterialSwitch;
 import com.google.android.material.textfield.TextInputEditText;
 
-import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 public class AlarmDialogFragment extends DialogFragment {
     private static final String TAG = "AlarmDialogFragment";
@@ -54,6 +51,7 @@ public class AlarmDialogFragment extends DialogFragment {
     private Alarm alarm;
     private OnAlarmSetListener listener;
     private int snoozeDuration = 10; // Default 10 minutes
+    private String selectedRingtone = "default";
 
     public interface OnAlarmSetListener {
         void onAlarmSet(Alarm alarm);
@@ -63,7 +61,7 @@ public class AlarmDialogFragment extends DialogFragment {
         AlarmDialogFragment fragment = new AlarmDialogFragment();
         Bundle args = new Bundle();
         if (alarm != null) {
-            args.putSerializable("alarm", (Serializable) alarm);
+            args.putParcelable("alarm", alarm);
         }
         fragment.setArguments(args);
         return fragment;
@@ -175,7 +173,7 @@ public class AlarmDialogFragment extends DialogFragment {
 
     private void loadAlarmData() {
         if (getArguments() != null) {
-            alarm = (Alarm) getArguments().getSerializable("alarm");
+            alarm = getArguments().getParcelable("alarm");
             if (alarm != null) {
                 Log.d(TAG, "Editing existing alarm: ID=" + alarm.getId());
 
@@ -196,11 +194,11 @@ public class AlarmDialogFragment extends DialogFragment {
                 snoozeDuration = alarm.getSnoozeDuration();
                 btnSnoozeDuration.setText(snoozeDuration + " min");
 
+                selectedRingtone = alarm.getRingtone();
+
                 // Set selected days
-                for (int day : alarm.getDaysOfWeek()) {
-                    if (day >= 1 && day <= 7) {
-                        selectedDays[day - 1] = true; // Convert 1-7 to 0-6
-                    }
+                for (int i = 0; i < selectedDays.length; i++) {
+                    selectedDays[i] = Alarm.DaysOfWeek.contains(alarm.getDaysMask(), i + 1); // Convert 0-6 to 1-7
                 }
                 updateDayButtons();
                 updateChipStates();
@@ -343,8 +341,7 @@ public class AlarmDialogFragment extends DialogFragment {
         intent.putExtra(RingtoneManager.EXTRA_RINGTONE_TYPE, RingtoneManager.TYPE_ALARM);
         intent.putExtra(RingtoneManager.EXTRA_RINGTONE_TITLE, "Select Alarm Sound");
         intent.putExtra(RingtoneManager.EXTRA_RINGTONE_EXISTING_URI,
-                alarm != null && !alarm.getRingtone().equals("default") ?
-                        Uri.parse(alarm.getRingtone()) : null);
+                !selectedRingtone.equals("default") ? Uri.parse(selectedRingtone) : null);
         startActivityForResult(intent, 100);
     }
 
@@ -358,10 +355,12 @@ public class AlarmDialogFragment extends DialogFragment {
                 Ringtone ringtone = RingtoneManager.getRingtone(requireContext(), ringtoneUri);
                 String ringtoneName = ringtone != null ? ringtone.getTitle(requireContext()) : "Default";
                 selectedRingtoneText.setText(ringtoneName);
-                alarm.setRingtone(ringtoneUri.toString());
+                selectedRingtone = ringtoneUri.toString();
+                // Giải mã trước trên luồng nền để lần kêu đầu tiên không phải chờ
+                RingtonePreloader.preload(requireContext(), selectedRingtone);
             } else {
                 selectedRingtoneText.setText("Default");
-                alarm.setRingtone("default");
+                selectedRingtone = "default";
             }
         }
     }
@@ -372,11 +371,11 @@ public class AlarmDialogFragment extends DialogFragment {
             // For "once" alarms, no days selected is OK
         }
 
-        // Get selected days as List<Integer> (1-7 format)
-        List<Integer> days = new ArrayList<>();
+        // Get selected days as bitmask (1-7 format)
+        int daysMask = Alarm.DaysOfWeek.NONE;
         for (int i = 0; i < selectedDays.length; i++) {
             if (selectedDays[i]) {
-                days.add(i + 1); // Convert 0-6 to 1-7
+                daysMask |= Alarm.DaysOfWeek.bit(i + 1); // Convert 0-6 to 1-7
             }
         }
 
@@ -388,17 +387,19 @@ public class AlarmDialogFragment extends DialogFragment {
                 alarmId,
                 timePicker.getHour(),
                 timePicker.getMinute(),
-                days,
+                null,
                 switchSnooze.isChecked(),
                 true, // enabled by default
                 label,
                 switchVibration.isChecked(),
                 snoozeDuration
         );
+        newAlarm.setDaysMask(daysMask);
+        newAlarm.setRingtone(selectedRingtone);
 
         Log.d(TAG, "Saving alarm: ID=" + newAlarm.getId() +
                 ", Time=" + newAlarm.getHour() + ":" + newAlarm.getMinute() +
-                ", Days=" + days.toString() +
+                ", Days=" + newAlarm.getDaysString() +
                 ", Label=" + label);
 
         if (listener != null) {
@@ -0,0 +1,162 @@
+package com.example.alarmclock;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+// Bảng chuỗi hiển thị dựng sẵn cho Alarm: 1440 phút trong ngày, 128 tổ hợp ngày, AM/PM.
+// Mỗi phần tử được tạo một lần khi dùng lần đầu rồi dùng lại, bảng được dựng lại khi locale đổi.
+// Chữ luôn là tiếng Anh như trước đây (ứng dụng chưa dịch chuỗi nào); chỉ chữ số theo locale như String.format.
+public final class AlarmFormatter {
+    // Đủ cho "Rings in 9999999d 23h 59m"
+    public static final int COUNTDOWN_CAPACITY = 32;
+
+    private static final char[] RINGS_IN = "Rings in ".toCharArray();
+    private static final char[] NOW = "Now".toCharArray();
+    private static final String[] AM_PM = {"AM", "PM"};
+    // Chỉ số theo Calendar.DAY_OF_WEEK (1 = Chủ nhật)
+    private static final String[] DAY_NAMES = {"", "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat"};
+
+    private static volatile Tables tables;
+
+    private AlarmFormatter() {
+    }
+
+    public static String time24(int hour, int minute) {
+        Tables t = tables();
+        int index = hour * 60 + minute;
+        String value = t.time24[index];
+        if (value == null) {
+            value = String.format(t.locale, "%02d:%02d", hour, minute);
+            t.time24[index] = value;
+        }
+        return value;
+    }
+
+    public static String time12(int hour, int minute) {
+        Tables t = tables();
+        int index = hour * 60 + minute;
+        String value = t.time12[index];
+        if (value == null) {
+            int displayHour = hour == 0 ? 12 : (hour > 12 ? hour - 12 : hour);
+            value = String.format(t.locale, "%d:%02d", displayHour, minute);
+            t.time12[index] = value;
+        }
+        return value;
+    }
+
+    public static String amPm(int hour) {
+        return AM_PM[hour >= 12 ? 1 : 0];
+    }
+
+    public static String days(int daysMask) {
+        Tables t = tables();
+        int index = daysMask & Alarm.DaysOfWeek.ALL;
+        String value = t.days[index];
+        if (value == null) {
+            value = buildDays(index);
+            t.days[index] = value;
+        }
+        return value;
+    }
+
+    public static String snoozingFor(int minutes) {
+        Tables t = tables();
+        if (minutes < 0 || minutes >= t.snoozing.length) {
+            return "Snoozing for " + minutes + " min";
+        }
+        String value = t.snoozing[minutes];
+        if (value == null) {
+            value = "Snoozing for " + String.format(t.locale, "%d", minutes) + " min";
+            t.snoozing[minutes] = value;
+        }
+        return value;
+    }
+
+    // Ghi "Rings in Xd Yh Zm" vào out (ít nhất COUNTDOWN_CAPACITY ký tự) và trả về độ dài, không cấp phát
+    public static int countdown(long timeDiff, char[] out) {
+        if (timeDiff <= 0) {
+            System.arraycopy(NOW, 0, out, 0, NOW.length);
+            return NOW.length;
+        }
+
+        long days = timeDiff / TriggerEngine.DAY_MILLIS;
+        long hours = (timeDiff % TriggerEngine.DAY_MILLIS) / TriggerEngine.HOUR_MILLIS;
+        long minutes = (timeDiff % TriggerEngine.HOUR_MILLIS) / TriggerEngine.MINUTE_MILLIS;
+        char zero = tables().zeroDigit;
+
+        System.arraycopy(RINGS_IN, 0, out, 0, RINGS_IN.length);
+        int length = RINGS_IN.length;
+        if (days > 0) {
+            length = appendNumber(out, length, days, zero);
+            out[length++] = 'd';
+            out[length++] = ' ';
+        }
+        if (days > 0 || hours > 0) {
+            length = appendNumber(out, length, hours, zero);
+            out[length++] = 'h';
+            out[length++] = ' ';
+        }
+        length = appendNumber(out, length, minutes, zero);
+        out[length++] = 'm';
+        return length;
+    }
+
+    private static int appendNumber(char[] out, int position, long value, char zero) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            out[i] = (char) (zero + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    private static String buildDays(int mask) {
+        if (mask == Alarm.DaysOfWeek.NONE) {
+            return "Once";
+        }
+        if (mask == Alarm.DaysOfWeek.ALL) {
+            return "Daily";
+        }
+        if (mask == Alarm.DaysOfWeek.WEEKDAYS) {
+            return "Weekdays";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int day = 1; day <= 7; day++) {
+            if (Alarm.DaysOfWeek.contains(mask, day)) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(DAY_NAMES[day]);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Locale.getDefault() trả về tham chiếu có sẵn nên kiểm tra mỗi lần gọi không tốn cấp phát
+    private static Tables tables() {
+        Locale locale = Locale.getDefault();
+        Tables t = tables;
+        if (t == null || t.locale != locale) {
+            t = new Tables(locale);
+            tables = t;
+        }
+        return t;
+    }
+
+    private static final class Tables {
+        final Locale locale;
+        final String[] time24 = new String[24 * 60];
+        final String[] time12 = new String[24 * 60];
+        final String[] days = new String[Alarm.DaysOfWeek.ALL + 1];
+        final String[] snoozing = new String[61];
+        final char zeroDigit;
+
+        Tables(Locale locale) {
+            this.locale = locale;
+            this.zeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+        }
+    }
+}
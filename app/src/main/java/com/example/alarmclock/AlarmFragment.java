@@ -1,14 +1,14 @@
 package com.example.alarmclock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.Context;
-import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -26,16 +26,34 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClickListener {
     private static final String TAG = "AlarmFragment";
+    // Đọc DB và tính lại next_alarm_time trên luồng riêng để không chặn khung hình đầu của MainActivity
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "AlarmListLoader"));
 
     private RecyclerView recyclerView;
     private AlarmAdapter alarmAdapter;
     private DatabaseHelper dbHelper;
-    private List<Alarm> alarmList;
+    private AlarmScheduler scheduler;
     //private TextView emptyStateText;
     private FloatingActionButton fab;
+    private View skeleton;
+    // Cập nhật "Rings in ..." của các dòng đang hiển thị mỗi phút, chỉ chạy khi fragment đang resume
+    private MinuteTicker countdownTicker;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<?> pendingLoad;
+    // Tăng mỗi lần tải hoặc khi view bị hủy; kết quả của lần tải cũ bị bỏ qua
+    private int loadGeneration;
+    // Chỉ giữ vài trang quanh vị trí đang cuộn, danh sách của adapter luôn là window.snapshot()
+    private final AlarmPageWindow window = new AlarmPageWindow(AlarmPageWindow.PAGE_SIZE, AlarmPageWindow.MAX_PAGES);
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -44,7 +62,7 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
         initializeViews(view);
         setupRecyclerView();
         setupFloatingActionButton();
-        loadAlarms();
+        // Danh sách được tải trong onResume
 
         return view;
     }
@@ -52,14 +70,26 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
     private void initializeViews(View view) {
         recyclerView = view.findViewById(R.id.recycler_view_alarms);
         fab = view.findViewById(R.id.fab_add_alarm);
+        skeleton = view.findViewById(R.id.layout_skeleton);
         //emptyStateText = view.findViewById(R.id.text_label);
 
-        dbHelper = new DatabaseHelper(getContext());
+        dbHelper = DatabaseHelper.getInstance(getContext());
+        scheduler = AlarmScheduler.getInstance(getContext());
     }
 
     // xoa khi vuot
     private void setupRecyclerView() {
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        // Adapter tạo một lần cho cả vòng đời view để giữ ViewHolder và vị trí cuộn giữa các lần resume
+        alarmAdapter = new AlarmAdapter(this, getContext());
+        recyclerView.setAdapter(alarmAdapter);
+        countdownTicker = new MinuteTicker(alarmAdapter::tickCountdowns);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadMoreIfNeeded();
+            }
+        });
 
         // Setup swipe to delete with modern UI feedback
         ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new SwipeToDeleteCallback());
@@ -71,28 +101,119 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
             Log.d(TAG, "FAB clicked to add new alarm");
             showAlarmDialog(null);
         });
+        // Nhấn giữ để mở màn hình debug độ trễ kích hoạt
+        fab.setOnLongClickListener(v -> {
+            startActivity(new Intent(getContext(), TriggerStatsActivity.class));
+            return true;
+        });
     }
 
-    // Tải và hiển thị danh sách báo thức
+    // Đọc lại cửa sổ đang hiển thị (lần đầu: trang đầu tiên) trên LOADER rồi áp dụng trên main thread;
+    // adapter so sánh với danh sách đang hiển thị và chỉ bind lại các dòng đã thay đổi.
+    // Skeleton được ẩn sau lần tải đầu tiên.
     private void loadAlarms() {
-        alarmList = dbHelper.getAllAlarms();
+        cancelLoad();
+        int afterId = window.isEmpty() ? 0 : window.firstId() - 1;
+        int limit = window.reloadLimit();
+        boolean hasBefore = !window.isEmpty() && window.hasBefore();
+        submitLoad("window", () -> dbHelper.getAlarmsAfter(afterId, limit), rows -> {
+            window.reset(rows, hasBefore, rows.size() >= limit);
+            showWindow(() -> {
+                skeleton.setVisibility(View.GONE);
+                updateEmptyState();
+                loadMoreIfNeeded();
+            });
+        });
+    }
 
-        // Calculate next alarm times for enabled alarms
-        for (Alarm alarm : alarmList) {
-            if (alarm.isEnabled()) {
-                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-            }
+    // Nạp thêm một trang khi dòng hiển thị tới gần mép cửa sổ; mỗi lúc chỉ một lần đọc DB
+    private void loadMoreIfNeeded() {
+        if (pendingLoad != null || window.isEmpty()) {
+            return;
         }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (last == RecyclerView.NO_POSITION) {
+            return;
+        }
+        if (window.shouldLoadAfter(last)) {
+            int lastId = window.lastId();
+            submitLoad("next page", () -> dbHelper.getAlarmsAfter(lastId, window.pageSize()), rows -> {
+                window.append(rows);
+                showWindow(this::loadMoreIfNeeded);
+            });
+        } else if (window.shouldLoadBefore(first)) {
+            int firstId = window.firstId();
+            submitLoad("previous page", () -> dbHelper.getAlarmsBefore(firstId, window.pageSize()), rows -> {
+                window.prepend(rows);
+                showWindow(this::loadMoreIfNeeded);
+            });
+        }
+    }
 
-        alarmAdapter = new AlarmAdapter(alarmList, this, getContext());
-        recyclerView.setAdapter(alarmAdapter);
+    // Đưa cửa sổ tới cuối bảng, vd để hiện báo thức vừa thêm
+    private void loadLastPage(Runnable commitCallback) {
+        cancelLoad();
+        submitLoad("last page", () -> dbHelper.getAlarmsBefore(Integer.MAX_VALUE, window.pageSize()), rows -> {
+            window.reset(rows, rows.size() >= window.pageSize(), false);
+            showWindow(commitCallback);
+        });
+    }
+
+    // Chạy query trên LOADER rồi gọi apply trên main thread, trừ khi đã có cancelLoad() trong lúc đó.
+    // Chỉ đọc: báo thức đã tới hạn mà broadcast chưa tới vẫn do AlarmScheduler / AlarmReceiver xử lý,
+    // đếm ngược của nó được AlarmRowBinder tính trong bộ nhớ.
+    private void submitLoad(String what, Supplier<List<Alarm>> query, Consumer<List<Alarm>> apply) {
+        int generation = loadGeneration;
+        long requestedAt = SystemClock.uptimeMillis();
+        pendingLoad = LOADER.submit(() -> {
+            List<Alarm> rows;
+            try {
+                rows = query.get();
+                Log.d(TAG, "Loaded " + what + " (" + rows.size() + " alarms) in " +
+                        (SystemClock.uptimeMillis() - requestedAt) + "ms");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to load " + what, e);
+                rows = null;
+            }
+            List<Alarm> result = rows;
+            mainHandler.post(() -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                pendingLoad = null;
+                if (result != null) {
+                    apply.accept(result);
+                }
+            });
+        });
+    }
 
-        updateEmptyState();
+    private void showWindow(Runnable commitCallback) {
+        alarmAdapter.submitList(window.snapshot(), commitCallback);
+    }
+
+    // Lần tải đang chờ có thể đã đọc DB trước thay đổi vừa ghi; tải lại cửa sổ để kết quả không ghi đè thay đổi đó
+    private void reloadIfPending() {
+        if (pendingLoad != null) {
+            loadAlarms();
+        }
+    }
+
+    // Bỏ lần tải chưa chạy và kết quả chưa được áp dụng; lần tải đang chạy vẫn chạy xong nhưng bị bỏ qua
+    private void cancelLoad() {
+        loadGeneration++;
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+            pendingLoad = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
     }
 
     // an hien danh sach bao thuc
     private void updateEmptyState() {
-        if (alarmList.isEmpty()) {
+        if (alarmAdapter.getItemCount() == 0) {
             recyclerView.setVisibility(View.GONE);
             //emptyStateText.setVisibility(View.VISIBLE);
             //emptyStateText.setText("No alarms set\nTap + to add your first alarm");
@@ -124,14 +245,7 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
     @Override
     public void onAlarmToggle(Alarm alarm, boolean enabled) {
         Log.d(TAG, "Alarm toggled: ID=" + alarm.getId() + ", Enabled=" + enabled);
-
-        if (enabled) {
-            alarm.setNextAlarmTime(alarm.calculateNextAlarmTime()); // Tính toán lại thời gian
-            scheduleAlarm(alarm);
-        } else {
-            cancelAlarm(alarm.getId());
-            alarm.setNextAlarmTime(0); // Reset nextAlarmTime khi tắt
-        }
+        // AlarmAdapter đã lưu và đặt/hủy lịch, ở đây chỉ hiển thị phản hồi
 
         // Show feedback to user
         String message = enabled ?
@@ -144,19 +258,27 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
     // Alarm management methods
     private void addAlarm(Alarm alarm) {
         try {
+            if (alarm.isEnabled()) {
+                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
+            }
             long id = dbHelper.addAlarm(alarm);
             alarm.setId((int) id);
 
             if (alarm.isEnabled()) {
-                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-                scheduleAlarm(alarm);
+                scheduler.schedule(alarm);
             }
 
-            alarmAdapter.addAlarm(alarm);
-            updateEmptyState();
-
-            // Scroll to new alarm
-            recyclerView.smoothScrollToPosition(alarmList.size() - 1);
+            Runnable scrollToNew = () -> {
+                updateEmptyState();
+                // Scroll to new alarm
+                recyclerView.smoothScrollToPosition(alarmAdapter.getItemCount() - 1);
+            };
+            // Báo thức mới nằm cuối bảng; nếu cuối bảng chưa nằm trong cửa sổ thì chuyển cửa sổ tới đó
+            if (pendingLoad == null && window.add(alarm)) {
+                showWindow(scrollToNew);
+            } else {
+                loadLastPage(scrollToNew);
+            }
 
             // Show success message
             String message = "Alarm " + (alarm.isEnabled() ? "set for " + alarm.getTimeUntilNext() : "created");
@@ -169,18 +291,29 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
         }
     }
 
-    private void updateAlarm(Alarm alarm) {
+    private void updateAlarm(Alarm edited) {
         try {
-            dbHelper.updateAlarm(alarm);
+            // Ghi các cột người dùng sửa lên bản mới nhất trong DB; thử lại nếu receiver vừa ghi chen giữa.
+            // Cột dữ liệu trước để lần kêu mới được tính theo giờ vừa sửa.
+            Alarm alarm = dbHelper.updateAlarm(edited.getId(), DatabaseHelper.FIELDS_ALL,
+                    current -> current.copySettingsFrom(edited));
+            if (alarm == null) {
+                Log.w(TAG, "Alarm was deleted while editing: ID=" + edited.getId());
+                return;
+            }
+            dbHelper.transition(alarm, edited.isEnabled() ? AlarmState.EVENT_SCHEDULE : AlarmState.EVENT_DISABLE,
+                    System.currentTimeMillis());
 
             if (alarm.isEnabled()) {
-                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-                scheduleAlarm(alarm);
+                scheduler.schedule(alarm);
             } else {
-                cancelAlarm(alarm.getId());
+                scheduler.cancel(alarm.getId());
             }
 
-            alarmAdapter.updateAlarm(alarm);
+            if (window.replace(alarm)) {
+                showWindow(null);
+            }
+            reloadIfPending();
 
             // Show success message
             String message = "Alarm " + (alarm.isEnabled() ? "updated" : "disabled");
@@ -194,28 +327,29 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
     }
 
     private void deleteAlarm(int position) {
-        if (position < 0 || position >= alarmList.size()) {
+        if (position < 0 || position >= alarmAdapter.getItemCount()) {
             return;
         }
 
-        Alarm alarm = alarmList.get(position);
+        Alarm alarm = alarmAdapter.getAlarm(position);
 
         try {
             // Remove from database
             dbHelper.deleteAlarm(alarm.getId());
 
             // Cancel scheduled alarm
-            cancelAlarm(alarm.getId());
+            scheduler.cancel(alarm.getId());
 
-            // Remove from adapter
-            alarmAdapter.removeAlarm(position);
-            updateEmptyState();
+            // Remove from list
+            window.remove(alarm.getId());
+            showWindow(this::updateEmptyState);
+            reloadIfPending();
 
             Log.d(TAG, "Deleted alarm: ID=" + alarm.getId());
 
             // Show undo option
             Snackbar.make(recyclerView, "Alarm deleted", Snackbar.LENGTH_LONG)
-                    .setAction("UNDO", v -> restoreAlarm(alarm, position))
+                    .setAction("UNDO", v -> restoreAlarm(alarm))
                     .show();
 
         } catch (Exception e) {
@@ -224,22 +358,27 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
         }
     }
 
-    private void restoreAlarm(Alarm alarm, int position) {
+    private void restoreAlarm(Alarm alarm) {
         try {
+            if (alarm.isEnabled()) {
+                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
+            }
+
             // Add back to database
             long newId = dbHelper.addAlarm(alarm);
             alarm.setId((int) newId);
 
             // Schedule if enabled
             if (alarm.isEnabled()) {
-                alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-                scheduleAlarm(alarm);
+                scheduler.schedule(alarm);
             }
 
-            // Add back to list at original position
-            alarmList.add(Math.min(position, alarmList.size()), alarm);
-            alarmAdapter.notifyItemInserted(Math.min(position, alarmList.size()));
-            updateEmptyState();
+            // Id mới lớn nhất nên báo thức trở lại ở cuối danh sách; chỉ hiện ngay nếu cuối bảng đang trong cửa sổ
+            if (pendingLoad == null && window.add(alarm)) {
+                showWindow(this::updateEmptyState);
+            } else {
+                reloadIfPending();
+            }
 
             Log.d(TAG, "Restored alarm: ID=" + alarm.getId());
         } catch (Exception e) {
@@ -247,61 +386,6 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
         }
     }
 
-    // len lich bao thuc
-    // Alarm scheduling methods
-    private void scheduleAlarm(Alarm alarm) {
-        AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(getContext(), AlarmReceiver.class);
-
-        // Pass comprehensive alarm data
-        intent.putExtra("alarm_id", alarm.getId());
-        intent.putExtra("alarm_hour", alarm.getHour());
-        intent.putExtra("alarm_minute", alarm.getMinute());
-        intent.putExtra("alarm_label", alarm.getLabel());
-        intent.putExtra("snooze_enabled", alarm.isSnooze());
-        intent.putExtra("snooze_duration", alarm.getSnoozeDuration());
-        intent.putExtra("vibration_enabled", alarm.isVibrationEnabled());
-        intent.putExtra("ringtone", alarm.getRingtone());
-
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                getContext(),
-                alarm.getId(),
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        long triggerTime = alarm.calculateNextAlarmTime();
-
-        if (alarmManager != null) {
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerTime,
-                    pendingIntent
-            );
-            Log.d(TAG, "Scheduled alarm: ID=" + alarm.getId() +
-                    ", Time=" + alarm.getFormattedTime() +
-                    ", TriggerTime=" + triggerTime);
-        }
-    }
-
-    // hủy một báo thức đã được đặt
-    private void cancelAlarm(int alarmId) {
-        AlarmManager alarmManager = (AlarmManager) getContext().getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(getContext(), AlarmReceiver.class);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                getContext(),
-                alarmId,
-                intent,
-                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        if (pendingIntent != null && alarmManager != null) {
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
-            Log.d(TAG, "Cancelled alarm: ID=" + alarmId);
-        }
-    }
-
     // Swipe to delete implementation with modern UI
     private class SwipeToDeleteCallback extends ItemTouchHelper.SimpleCallback {
         private final ColorDrawable background;
@@ -373,18 +457,22 @@ public class AlarmFragment extends Fragment implements AlarmAdapter.OnAlarmClick
     @Override
     public void onResume() {
         super.onResume();
-        // Làm mới danh sách báo thức
-        if (alarmAdapter != null) {
-            alarmList = dbHelper.getAllAlarms();
-            for (Alarm alarm : alarmList) {
-                if (alarm.isEnabled()) {
-                    alarm.setNextAlarmTime(alarm.calculateNextAlarmTime());
-                }
-            }
-            alarmAdapter = new AlarmAdapter(alarmList, this, getContext());
-            recyclerView.setAdapter(alarmAdapter);
-            updateEmptyState();
-            Log.d(TAG, "Refreshed alarm list on resume");
-        }
+        // Làm mới danh sách báo thức; không có thay đổi thì không dòng nào bị bind lại
+        loadAlarms();
+        countdownTicker.start();
+        Log.d(TAG, "Refreshing alarm list on resume");
+    }
+
+    // ViewPager2 chỉ resume trang đang hiển thị nên ticker dừng cả khi chuyển tab lẫn khi ứng dụng xuống nền
+    @Override
+    public void onPause() {
+        countdownTicker.stop();
+        super.onPause();
+    }
+
+    @Override
+    public void onDestroyView() {
+        cancelLoad();
+        super.onDestroyView();
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.example.alarmclock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Cửa sổ các trang liên tiếp của danh sách báo thức theo thứ tự id, phần AlarmFragment đang hiển thị.
+// Trang được đọc bằng DatabaseHelper.getAlarmsAfter / getAlarmsBefore theo id ở hai đầu cửa sổ; nạp thêm ở
+// một đầu thì bỏ trang ở đầu kia khi vượt maxPages, nên bộ nhớ không phụ thuộc số dòng trong bảng.
+// Chỉ dùng trên main thread; việc đọc DB chạy trên luồng nền rồi gọi append / prepend / reset.
+final class AlarmPageWindow {
+    static final int PAGE_SIZE = 50;
+    static final int MAX_PAGES = 5;
+
+    private final int pageSize;
+    private final int maxPages;
+    // Trang không bao giờ rỗng: trang bị xóa hết dòng thì bị bỏ
+    private final ArrayDeque<List<Alarm>> pages = new ArrayDeque<>();
+    private int size;
+    private boolean hasBefore;
+    private boolean hasAfter;
+
+    AlarmPageWindow(int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Còn dòng trong DB trước / sau cửa sổ
+    boolean hasBefore() {
+        return hasBefore;
+    }
+
+    boolean hasAfter() {
+        return hasAfter;
+    }
+
+    int firstId() {
+        return pages.getFirst().get(0).getId();
+    }
+
+    int lastId() {
+        List<Alarm> last = pages.getLast();
+        return last.get(last.size() - 1).getId();
+    }
+
+    // Số dòng đọc lại khi làm mới cửa sổ tại chỗ (onResume)
+    int reloadLimit() {
+        return Math.max(pageSize, Math.min(size, pageSize * maxPages));
+    }
+
+    // Nạp trước khi dòng cuối (đầu) hiển thị cách mép cửa sổ chưa tới nửa trang
+    boolean shouldLoadAfter(int lastVisible) {
+        return hasAfter && lastVisible >= size - pageSize / 2;
+    }
+
+    boolean shouldLoadBefore(int firstVisible) {
+        return hasBefore && firstVisible < pageSize / 2;
+    }
+
+    // Thay toàn bộ cửa sổ bằng rows (liên tiếp theo id)
+    void reset(List<Alarm> rows, boolean hasBefore, boolean hasAfter) {
+        pages.clear();
+        size = 0;
+        for (int start = 0; start < rows.size(); start += pageSize) {
+            addLast(new ArrayList<>(rows.subList(start, Math.min(start + pageSize, rows.size()))));
+        }
+        this.hasBefore = hasBefore;
+        this.hasAfter = hasAfter;
+    }
+
+    // page là kết quả getAlarmsAfter(lastId(), pageSize); trang thiếu nghĩa là đã tới cuối bảng
+    void append(List<Alarm> page) {
+        hasAfter = page.size() >= pageSize;
+        if (!page.isEmpty()) {
+            addLast(new ArrayList<>(page));
+        }
+    }
+
+    // page là kết quả getAlarmsBefore(firstId(), pageSize)
+    void prepend(List<Alarm> page) {
+        hasBefore = page.size() >= pageSize;
+        if (page.isEmpty()) {
+            return;
+        }
+        pages.addFirst(new ArrayList<>(page));
+        size += page.size();
+        while (pages.size() > maxPages) {
+            size -= pages.removeLast().size();
+            hasAfter = true;
+        }
+    }
+
+    // Báo thức mới có id lớn nhất nên thuộc cuối bảng; trả về false nếu cuối bảng nằm ngoài cửa sổ
+    boolean add(Alarm alarm) {
+        if (hasAfter) {
+            return false;
+        }
+        List<Alarm> last = pages.peekLast();
+        if (last == null || last.size() >= pageSize) {
+            List<Alarm> page = new ArrayList<>(pageSize);
+            page.add(alarm);
+            addLast(page);
+        } else {
+            last.add(alarm);
+            size++;
+        }
+        return true;
+    }
+
+    boolean replace(Alarm alarm) {
+        for (List<Alarm> page : pages) {
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == alarm.getId()) {
+                    page.set(i, alarm);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    boolean remove(int alarmId) {
+        for (Iterator<List<Alarm>> it = pages.iterator(); it.hasNext(); ) {
+            List<Alarm> page = it.next();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == alarmId) {
+                    page.remove(i);
+                    size--;
+                    if (page.isEmpty()) {
+                        it.remove();
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Bản sao phẳng để gửi cho AlarmAdapter.submitList
+    List<Alarm> snapshot() {
+        List<Alarm> alarms = new ArrayList<>(size);
+        for (List<Alarm> page : pages) {
+            alarms.addAll(page);
+        }
+        return alarms;
+    }
+
+    private void addLast(List<Alarm> page) {
+        pages.addLast(page);
+        size += page.size();
+        while (pages.size() > maxPages) {
+            size -= pages.removeFirst().size();
+            hasBefore = true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.alarmclock;
+
+// Màu của một dòng báo thức, được AlarmAdapter đọc từ resource một lần khi tạo adapter.
+// Đổi theme (sáng/tối) sẽ tạo lại Activity nên adapter và bảng màu cũng được tạo lại.
+final class AlarmPalette {
+    final int timeEnabled;
+    final int timeDisabled;
+    final int secondaryEnabled;
+    final int secondaryDisabled;
+    final int cardEnabled;
+    final int cardDisabled;
+    final int iconEnabled;
+    final int iconDisabled;
+    final int label;
+
+    AlarmPalette(int timeEnabled, int timeDisabled, int secondaryEnabled, int secondaryDisabled,
+                 int cardEnabled, int cardDisabled, int iconEnabled, int iconDisabled, int label) {
+        this.timeEnabled = timeEnabled;
+        this.timeDisabled = timeDisabled;
+        this.secondaryEnabled = secondaryEnabled;
+        this.secondaryDisabled = secondaryDisabled;
+        this.cardEnabled = cardEnabled;
+        this.cardDisabled = cardDisabled;
+        this.iconEnabled = iconEnabled;
+        this.iconDisabled = iconDisabled;
+        this.label = label;
+    }
+}
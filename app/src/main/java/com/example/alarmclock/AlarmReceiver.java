@@ -1,121 +1,74 @@
 package com.example.alarmclock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
-import android.media.RingtoneManager;
-import android.net.Uri;
+import android.os.SystemClock;
 import android.util.Log;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
-import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class AlarmReceiver extends BroadcastReceiver {
     private static final String TAG = "AlarmReceiver";
 
     @Override
     public void onReceive(Context context, Intent intent) {
+        long receivedAt = SystemClock.uptimeMillis();
+        long deliveredAt = System.currentTimeMillis();
+        long scheduledAt = intent.getLongExtra(TriggerStats.EXTRA_SCHEDULED_AT, 0);
+        int alarmType = intent.getIntExtra(TriggerStats.EXTRA_ALARM_TYPE, TriggerStats.TYPE_NORMAL);
         int alarmId = intent.getIntExtra("alarm_id", 0);
+        FireTrace.startFire(alarmId);
+        long receiveStart = FireTrace.begin(FireTrace.RECEIVE);
         boolean snooze = intent.getBooleanExtra("snooze", false);
-        String ringtone = intent.getStringExtra("ringtone");
+        // Nhạc chuông chỉ lấy từ dữ liệu báo thức đã mã hóa kèm lúc đặt lịch
+        byte[] alarmData = intent.getByteArrayExtra(AlarmCodec.EXTRA_ALARM_DATA);
+        Alarm scheduled = AlarmCodec.decode(alarmData);
+        String ringtone = scheduled != null ? scheduled.getRingtone() : null;
+
+        // Bắt đầu phát âm thanh trong foreground service trước khi mở giao diện
+        long startServiceStart = FireTrace.begin(FireTrace.START_SERVICE);
+        RingingService.start(context, alarmId, snooze, ringtone, alarmData);
+        FireTrace.end(alarmId, FireTrace.START_SERVICE, startServiceStart);
 
         // Launch full-screen AlarmActivity
         Intent activityIntent = new Intent(context, AlarmActivity.class);
         activityIntent.putExtra("alarm_id", alarmId);
         activityIntent.putExtra("snooze", snooze);
-        activityIntent.putExtra("ringtone", ringtone);
-        activityIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        // SINGLE_TOP: nếu đang kêu thì dùng lại activity đang mở thay vì tạo lại
+        activityIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        long startActivityStart = FireTrace.begin(FireTrace.START_ACTIVITY);
         context.startActivity(activityIntent);
+        FireTrace.end(alarmId, FireTrace.START_ACTIVITY, startActivityStart);
 
-        // Optionally show notification as fallback
-        if (ContextCompat.checkSelfPermission(context, "android.permission.POST_NOTIFICATIONS") == PackageManager.PERMISSION_GRANTED) {
-            Uri alarmUri = ringtone != null && !ringtone.equals("default") ?
-                    Uri.parse(ringtone) : RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-            if (alarmUri == null) {
-                alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+        // Đọc/ghi DB và đặt lịch trên luồng nền để không trì hoãn việc mở AlarmActivity
+        Context appContext = context.getApplicationContext();
+        ReceiverWork.run(this, TAG, receivedAt, () -> {
+            // Độ trễ giao broadcast so với thời điểm đã đặt (vd do Doze)
+            if (scheduledAt > 0) {
+                TriggerStats.getInstance(appContext).record(alarmType, deliveredAt - scheduledAt);
             }
 
-            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, "alarm_channel")
-                    .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
-                    .setContentTitle("Alarm")
-                    .setContentText("Time to wake up!")
-                    .setPriority(NotificationCompat.PRIORITY_HIGH)
-                    .setSound(alarmUri)
-                    .setAutoCancel(true);
-
-            // Sửa lỗi: Sử dụng Broadcast thay vì Activity cho PendingIntent
-            Intent snoozeIntent = new Intent(context, SnoozeReceiver.class);
-            snoozeIntent.putExtra("alarm_id", alarmId);
-            snoozeIntent.putExtra("ringtone", ringtone);
-            PendingIntent snoozePendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    alarmId + 1000,
-                    snoozeIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            builder.addAction(android.R.drawable.ic_menu_recent_history, "Snooze", snoozePendingIntent);
-
-            Intent stopIntent = new Intent(context, StopReceiver.class);
-            stopIntent.putExtra("alarm_id", alarmId);
-            PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    alarmId + 2000,
-                    stopIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            builder.addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop", stopPendingIntent);
-
-            try {
-                NotificationManagerCompat.from(context).notify(alarmId, builder.build());
-            } catch (SecurityException e) {
-                Log.e(TAG, "Failed to send notification due to missing permission", e);
+            // Bỏ báo thức vừa kêu khỏi hàng đợi và đăng ký báo thức kế tiếp.
+            // Báo thức khác cùng phút được gộp vào phiên đang kêu ngay tại đây.
+            AlarmScheduler scheduler = AlarmScheduler.getInstance(appContext);
+            List<Integer> firedIds = new ArrayList<>();
+            firedIds.add(alarmId);
+            for (AlarmScheduler.DueAlarm due : scheduler.onAlarmFired(alarmId, deliveredAt)) {
+                FireTrace.startFire(due.alarmId);
+                RingingService.start(appContext, due.alarmId, due.snooze, due.ringtone, due.alarmData);
+                firedIds.add(due.alarmId);
             }
-        } else {
-            Log.w(TAG, "POST_NOTIFICATIONS permission not granted, notification skipped");
-        }
-
-        // Reschedule if repeating
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        Alarm alarm = dbHelper.getAllAlarms().stream()
-                .filter(a -> a.getId() == alarmId)
-                .findFirst()
-                .orElse(null);
 
-        if (alarm != null) {
-            if (snooze) {
-                // Nếu là snooze, giữ enabled = true và cập nhật isSnoozing
-                alarm.setSnoozing(true);
-                alarm.setEnabled(true);
-                dbHelper.updateAlarm(alarm);
-                Log.d(TAG, "Updated alarm to snoozing: ID=" + alarm.getId());
-            } else if (!alarm.getDaysOfWeek().isEmpty()) {
-                // Lên lịch lại cho báo thức lặp lại
-                AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-                Intent newIntent = new Intent(context, AlarmReceiver.class);
-                newIntent.putExtra("alarm_id", alarm.getId());
-                newIntent.putExtra("snooze", false);
-                newIntent.putExtra("ringtone", alarm.getRingtone());
-                PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                        context,
-                        alarm.getId(),
-                        newIntent,
-                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-                );
-                long triggerTime = alarm.calculateNextAlarmTime();
-                alarm.setNextAlarmTime(triggerTime);
-                alarm.setSnoozing(false); // Reset snooze status
-                dbHelper.updateAlarm(alarm);
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP, // may dang ngu
-                        triggerTime,
-                        pendingIntent
-                );
-                Log.d(TAG, "Rescheduled repeating alarm: ID=" + alarm.getId());
-            }
-            // Không đặt enabled = false cho báo thức một lần ở đây, để lại cho StopReceiver
-        }
+            // SCHEDULED/SNOOZED -> RINGING cho cả nhóm trong một transaction; báo thức lặp lại
+            // được đặt sẵn lần kế tiếp. Broadcast lặp lại cho báo thức đang kêu bị bỏ qua.
+            DatabaseHelper dbHelper = DatabaseHelper.getInstance(appContext);
+            List<Alarm> ringing = dbHelper.transitionAll(
+                    dbHelper.getAlarmsByIds(firedIds), AlarmState.EVENT_FIRE, deliveredAt);
+            scheduler.scheduleAll(ringing);
+            Log.d(TAG, "Fired alarms " + firedIds + ", " + ringing.size() + " now ringing");
+        });
+        FireTrace.end(alarmId, FireTrace.RECEIVE, receiveStart);
     }
-}
\ No newline at end of file
+}
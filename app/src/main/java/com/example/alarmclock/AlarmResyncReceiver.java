@@ -0,0 +1,150 @@
+package com.example.alarmclock;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Đồng bộ lại lịch báo thức sau khi khởi động máy, đổi giờ, đổi múi giờ hoặc cập nhật app.
+// AlarmManager mất toàn bộ đăng ký khi khởi động lại nên phải đặt lại từ next_alarm_time trong DB.
+public class AlarmResyncReceiver extends BroadcastReceiver {
+    private static final String TAG = "AlarmResyncReceiver";
+    // Id báo thức luôn dương nên không trùng với thông báo của từng báo thức
+    private static final int MISSED_NOTIFICATION_ID = -1;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long receivedAt = SystemClock.uptimeMillis();
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_TIME_CHANGED.equals(action)
+                && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        ReceiverWork.run(this, TAG, receivedAt, () -> resync(appContext, action));
+    }
+
+    private static void resync(Context context, String action) {
+        boolean restarted = Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action);
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            // Bỏ bảng chuyển giờ của múi giờ cũ
+            TriggerEngine.invalidateZone();
+        }
+
+        // Một truy vấn, một mốc now và một lần đăng ký lại
+        DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
+        if (Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            cancelLegacyAlarms(context, dbHelper.getAllAlarms());
+        }
+        List<Alarm> alarms = dbHelper.getEnabledAlarms();
+        long now = System.currentTimeMillis();
+
+        List<Alarm> missed = new ArrayList<>();
+        List<Alarm> upcoming = new ArrayList<>();
+        List<Alarm> interrupted = new ArrayList<>();
+        int missedCount = 0;
+        for (Alarm alarm : alarms) {
+            long due = alarm.getNextAlarmTime();
+            if (alarm.getState() == AlarmState.RINGING) {
+                // Phiên đang kêu không sống sót qua khởi động lại hoặc cập nhật app
+                if (restarted) {
+                    interrupted.add(alarm);
+                }
+            } else if (due > 0 && due <= now) {
+                // Lần kích hoạt đã qua khi máy tắt hoặc khi đồng hồ bị chỉnh tới
+                missedCount += alarm.isSnoozing() ? 1 : TriggerEngine.countMissed(
+                        alarm.getHour(), alarm.getMinute(), alarm.getDaysMask(), due, now);
+                missed.add(alarm);
+            } else if (alarm.getState() == AlarmState.SCHEDULED) {
+                // Snooze đang chờ giữ nguyên thời điểm tuyệt đối
+                upcoming.add(alarm);
+            }
+        }
+
+        // Báo thức lặp lại về SCHEDULED với lần kế tiếp, báo thức một lần đã lỡ thì không kêu lại (DISMISSED).
+        // Lần kêu sắp tới được tính lại theo giờ mới; báo thức có thời điểm không đổi không bị ghi.
+        interrupted.addAll(missed);
+        dbHelper.transitionAll(interrupted, AlarmState.EVENT_DISMISS, now);
+        dbHelper.transitionAll(upcoming, AlarmState.EVENT_SCHEDULE, now);
+        AlarmScheduler.getInstance(context).scheduleAll(alarms);
+
+        if (!missed.isEmpty()) {
+            notifyMissed(context, missed, missedCount);
+        }
+        Log.d(TAG, action + ": resynced " + alarms.size() + " alarms, missed " + missedCount +
+                " occurrences of " + missed.size() + " alarms");
+    }
+
+    // Bản cũ đăng ký mỗi báo thức một PendingIntent với request code = id; các đăng ký đó vẫn còn sau khi
+    // cập nhật app và sẽ kêu trùng với lần kích hoạt do AlarmScheduler đăng ký
+    private static void cancelLegacyAlarms(Context context, List<Alarm> alarms) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        int cancelled = 0;
+        for (Alarm alarm : alarms) {
+            int alarmId = alarm.getId();
+            // Request code 0 là PendingIntent "kế tiếp" của AlarmScheduler
+            if (alarmId == AlarmScheduler.NEXT_ALARM_REQUEST_CODE) {
+                continue;
+            }
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                    context,
+                    alarmId,
+                    new Intent(context, AlarmReceiver.class),
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+            );
+            if (pendingIntent != null) {
+                alarmManager.cancel(pendingIntent);
+                pendingIntent.cancel();
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            Log.d(TAG, "Cancelled " + cancelled + " legacy alarm registrations");
+        }
+    }
+
+    private static void notifyMissed(Context context, List<Alarm> missed, int missedCount) {
+        if (ContextCompat.checkSelfPermission(context, "android.permission.POST_NOTIFICATIONS") != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "POST_NOTIFICATIONS permission not granted, missed alarm notification skipped");
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Alarm alarm : missed) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(alarm.getFormattedTime());
+            if (alarm.getLabel() != null && !alarm.getLabel().isEmpty()) {
+                text.append(' ').append(alarm.getLabel());
+            }
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, "alarm_channel")
+                .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                .setContentTitle(missedCount == 1 ? "Missed alarm" : "Missed " + missedCount + " alarms")
+                .setContentText(text)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setAutoCancel(true);
+        try {
+            NotificationManagerCompat.from(context).notify(MISSED_NOTIFICATION_ID, builder.build());
+        } catch (SecurityException e) {
+            Log.e(TAG, "Failed to send missed alarm notification", e);
+        }
+    }
+}
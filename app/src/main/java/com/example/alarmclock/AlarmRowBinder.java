@@ -0,0 +1,85 @@
+package com.example.alarmclock;
+
+// Bind một dòng báo thức theo các phần đã thay đổi. AlarmAdapter gửi mặt nạ thay đổi làm payload
+// của notifyItemChanged / DiffUtil để chỉ các view liên quan được cập nhật.
+final class AlarmRowBinder {
+    static final int ENABLED_CHANGED = 1;       // Switch, màu, thẻ, chỉ báo và đếm ngược
+    static final int COUNTDOWN_TICK = 1 << 1;   // Chỉ dòng "còn ... nữa"
+    static final int SNOOZE_CHANGED = 1 << 2;   // Dòng snooze
+    static final int TEXT_CHANGED = 1 << 3;     // Giờ, ngày, nhãn: chỉ đổi khi người dùng sửa báo thức
+    static final int FULL = ENABLED_CHANGED | COUNTDOWN_TICK | SNOOZE_CHANGED | TEXT_CHANGED;
+    // Broadcast của lần kêu đã tới hạn có thể bị Doze hoãn; trong khoảng này dòng hiện "Now"
+    static final long LATE_GRACE_MILLIS = 15 * TriggerEngine.MINUTE_MILLIS;
+
+    // Mỗi phương thức là một lần thay đổi view của dòng
+    interface Row {
+        void setTime(String time, String amPm);
+        void setDays(String days);
+        void setLabel(String label);                    // Rỗng thì ẩn
+        void setCountdown(char[] buffer, int length);   // length = 0 thì ẩn
+        void setSnooze(String text);                    // null thì ẩn
+        void setChecked(boolean checked);
+        void setTextColors(int timeColor, int secondaryColor);
+        void setCardStyle(int backgroundColor, float alpha);
+        void setStatus(boolean active, int iconColor);
+    }
+
+    private AlarmRowBinder() {
+    }
+
+    static void bind(Row row, Alarm alarm, int changes, long now, char[] buffer, AlarmPalette palette) {
+        boolean enabled = alarm.isEnabled();
+        if ((changes & TEXT_CHANGED) != 0) {
+            row.setTime(alarm.getFormattedTime12Hour(), alarm.getAmPm());
+            row.setDays(alarm.getDaysString());
+            row.setLabel(alarm.getLabel());
+        }
+        if ((changes & ENABLED_CHANGED) != 0) {
+            row.setChecked(enabled);
+            row.setTextColors(enabled ? palette.timeEnabled : palette.timeDisabled,
+                    enabled ? palette.secondaryEnabled : palette.secondaryDisabled);
+            row.setCardStyle(enabled ? palette.cardEnabled : palette.cardDisabled, enabled ? 1.0f : 0.7f);
+            row.setStatus(enabled, enabled ? palette.iconEnabled : palette.iconDisabled);
+        }
+        // Bật/tắt cũng làm dòng đếm ngược hiện hoặc ẩn
+        if ((changes & (COUNTDOWN_TICK | ENABLED_CHANGED)) != 0) {
+            long next = enabled ? displayedTrigger(alarm, now) : 0;
+            row.setCountdown(buffer, next > 0 ? AlarmFormatter.countdown(next - now, buffer) : 0);
+        }
+        if ((changes & SNOOZE_CHANGED) != 0) {
+            row.setSnooze(alarm.isSnoozing() ? AlarmFormatter.snoozingFor(alarm.getSnoozeDuration()) : null);
+        }
+    }
+
+    // next_alarm_time đã lưu; báo thức lặp lại đã quá hạn lâu hơn LATE_GRACE_MILLIS thì hiện lần kế tiếp, chỉ
+    // trong bộ nhớ (DB và lịch đã đăng ký giữ nguyên cho AlarmScheduler / AlarmReceiver)
+    static long displayedTrigger(Alarm alarm, long now) {
+        long next = alarm.getNextAlarmTime();
+        if (next > 0 && next < now - LATE_GRACE_MILLIS && !alarm.isSnoozing()
+                && alarm.getDaysMask() != Alarm.DaysOfWeek.NONE) {
+            return alarm.calculateNextAlarmTime(now);
+        }
+        return next;
+    }
+
+    // Các phần khác nhau giữa hai bản của cùng một báo thức; 0 nghĩa là không cần bind lại
+    static int changes(Alarm oldItem, Alarm newItem) {
+        int changes = 0;
+        if (oldItem.getHour() != newItem.getHour() || oldItem.getMinute() != newItem.getMinute()
+                || oldItem.getDaysMask() != newItem.getDaysMask()
+                || !oldItem.getLabel().equals(newItem.getLabel())) {
+            changes |= TEXT_CHANGED;
+        }
+        if (oldItem.isEnabled() != newItem.isEnabled()) {
+            changes |= ENABLED_CHANGED;
+        }
+        if (oldItem.getNextAlarmTime() != newItem.getNextAlarmTime()) {
+            changes |= COUNTDOWN_TICK;
+        }
+        if (oldItem.isSnoozing() != newItem.isSnoozing()
+                || oldItem.getSnoozeDuration() != newItem.getSnoozeDuration()) {
+            changes |= SNOOZE_CHANGED;
+        }
+        return changes;
+    }
+}
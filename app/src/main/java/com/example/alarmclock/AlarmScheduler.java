@@ -0,0 +1,188 @@
+package com.example.alarmclock;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Giữ các lần kích hoạt sắp tới trong một min-heap và chỉ đăng ký lần sớm nhất với AlarmManager.
+// Khi báo thức đó kêu, AlarmReceiver gọi onAlarmFired để lấy nó ra khỏi heap và đặt lần kế tiếp.
+public final class AlarmScheduler {
+    private static final String TAG = "AlarmScheduler";
+    // Id báo thức bắt đầu từ 1 (AUTOINCREMENT) nên request code 0 dành riêng cho PendingIntent "kế tiếp"
+    static final int NEXT_ALARM_REQUEST_CODE = 0;
+
+    private static AlarmScheduler instance;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final TriggerQueue queue = new TriggerQueue();
+    private boolean loaded;
+    // Lần kích hoạt đang đăng ký với AlarmManager; armedKnown = false khi process mới khởi động
+    // (hệ thống có thể còn giữ đăng ký của process trước) nên lần rearm đầu tiên luôn gọi hệ thống
+    private boolean armedKnown;
+    private TriggerQueue.Entry armed;
+
+    public static synchronized AlarmScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmScheduler(Context context) {
+        this.context = context;
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    // Đặt (hoặc cập nhật) lần kích hoạt của một báo thức theo next_alarm_time
+    public synchronized void schedule(Alarm alarm) {
+        schedule(alarm, alarm.isSnoozing() ? TriggerStats.TYPE_SNOOZE : TriggerStats.TYPE_NORMAL);
+    }
+
+    // type (TriggerStats.TYPE_*) được gửi kèm Intent để AlarmReceiver ghi độ trễ theo đúng loại
+    public synchronized void schedule(Alarm alarm, int type) {
+        ensureLoaded();
+        queue.put(alarm, System.currentTimeMillis(), type);
+        rearm();
+    }
+
+    // Đặt nhiều báo thức rồi chỉ đăng ký lại với hệ thống một lần
+    public synchronized void scheduleAll(Collection<Alarm> alarms) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        for (Alarm alarm : alarms) {
+            queue.put(alarm, now, alarm.isSnoozing() ? TriggerStats.TYPE_SNOOZE : TriggerStats.TYPE_NORMAL);
+        }
+        rearm();
+    }
+
+    public synchronized void scheduleAll(Collection<Alarm> alarms, int type) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        for (Alarm alarm : alarms) {
+            queue.put(alarm, now, type);
+        }
+        rearm();
+    }
+
+    public synchronized void cancel(int alarmId) {
+        ensureLoaded();
+        if (queue.remove(alarmId)) {
+            rearm();
+        }
+    }
+
+    // Hủy nhiều báo thức rồi chỉ đăng ký lại với hệ thống một lần
+    public synchronized void cancelAll(Collection<Integer> alarmIds) {
+        ensureLoaded();
+        boolean changed = false;
+        for (int alarmId : alarmIds) {
+            changed |= queue.remove(alarmId);
+        }
+        if (changed) {
+            rearm();
+        }
+    }
+
+    // Báo thức vừa kêu: bỏ khỏi heap cùng các báo thức khác đến hạn trong cùng phút rồi đăng ký lần kế tiếp.
+    // Các báo thức gộp được trả về để AlarmReceiver cho kêu chung một phiên thay vì chờ AlarmManager giao
+    // từng cái (setExactAndAllowWhileIdle bị giới hạn tần suất khi máy ở chế độ Doze).
+    public synchronized List<DueAlarm> onAlarmFired(int alarmId, long now) {
+        ensureLoaded();
+        List<DueAlarm> coalesced = new ArrayList<>();
+        for (TriggerQueue.Entry entry : queue.onAlarmFired(alarmId, now)) {
+            coalesced.add(new DueAlarm(entry.alarmId, entry.snooze, entry.ringtone, entry.payload));
+        }
+        rearm();
+        return coalesced;
+    }
+
+    // Dựng heap từ next_alarm_time đã lưu khi process mới khởi động
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        long now = System.currentTimeMillis();
+        for (Alarm alarm : DatabaseHelper.getInstance(context).getEnabledAlarms()) {
+            // Loại auto-snooze không được lưu trong DB nên sau khi process bị hủy được tính là snooze.
+            // Báo thức vừa kêu (nếu có) được onAlarmFired bỏ ra ngay sau đó.
+            queue.restore(alarm, now, alarm.isSnoozing() ? TriggerStats.TYPE_SNOOZE : TriggerStats.TYPE_NORMAL);
+        }
+    }
+
+    // Chỉ đăng ký báo thức sớm nhất; PendingIntent dùng chung một request code nên đăng ký mới thay thế cái cũ.
+    // Bỏ qua khi đầu heap không đổi so với lần đăng ký trước để không gọi hệ thống thừa.
+    private void rearm() {
+        TriggerQueue.Entry next = queue.peek();
+        if (armedKnown && sameRegistration(armed, next)) {
+            return;
+        }
+        armedKnown = true;
+        armed = next;
+        if (next == null) {
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                    context,
+                    NEXT_ALARM_REQUEST_CODE,
+                    new Intent(context, AlarmReceiver.class),
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+            );
+            if (pendingIntent != null) {
+                alarmManager.cancel(pendingIntent);
+                pendingIntent.cancel();
+            }
+            Log.d(TAG, "No upcoming alarms");
+            return;
+        }
+
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.putExtra("alarm_id", next.alarmId);
+        intent.putExtra("snooze", next.snooze);
+        intent.putExtra(AlarmCodec.EXTRA_ALARM_DATA, next.payload);
+        intent.putExtra(TriggerStats.EXTRA_SCHEDULED_AT, next.triggerAt);
+        intent.putExtra(TriggerStats.EXTRA_ALARM_TYPE, next.type);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                NEXT_ALARM_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.triggerAt, pendingIntent);
+        RingtonePreloader.preload(context, next.ringtone);
+        Log.d(TAG, "Armed alarm ID=" + next.alarmId + ", TriggerTime=" + next.triggerAt +
+                ", pending=" + queue.size());
+    }
+
+    public static final class DueAlarm {
+        public final int alarmId;
+        public final boolean snooze;
+        public final String ringtone;
+        // Báo thức mã hóa bằng AlarmCodec lúc đặt lịch, để RingingService hiển thị mà không đọc DB
+        public final byte[] alarmData;
+
+        DueAlarm(int alarmId, boolean snooze, String ringtone, byte[] alarmData) {
+            this.alarmId = alarmId;
+            this.snooze = snooze;
+            this.ringtone = ringtone;
+            this.alarmData = alarmData;
+        }
+    }
+
+    private static boolean sameRegistration(TriggerQueue.Entry a, TriggerQueue.Entry b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        return a.alarmId == b.alarmId && a.triggerAt == b.triggerAt && a.snooze == b.snooze
+                && a.type == b.type && Arrays.equals(a.payload, b.payload);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.alarmclock;
+
+// Máy trạng thái của một báo thức. Trạng thái quyết định enabled / is_snoozing, mỗi sự kiện chỉ hợp lệ
+// từ một tập trạng thái nguồn. DatabaseHelper.transitionAll áp dụng sự kiện bằng một câu UPDATE có điều kiện,
+// nên sự kiện bị từ chối hoặc lặp lại (vd Snooze đến sau auto-snooze) không ghi gì.
+public final class AlarmState {
+    public static final int IDLE = 0;       // Người dùng tắt
+    public static final int SCHEDULED = 1;  // Chờ lần kêu tiếp theo
+    public static final int RINGING = 2;    // Đang trong phiên RingingService
+    public static final int SNOOZED = 3;    // Chờ kêu lại sau snooze
+    public static final int DISMISSED = 4;  // Báo thức một lần đã kêu xong hoặc bị lỡ
+
+    public static final int EVENT_SCHEDULE = 0;    // Bật, sửa hoặc tính lại lần kêu
+    public static final int EVENT_DISABLE = 1;
+    public static final int EVENT_FIRE = 2;
+    public static final int EVENT_SNOOZE = 3;
+    public static final int EVENT_AUTO_SNOOZE = 4; // Không ai bấm trong phiên đang kêu
+    public static final int EVENT_DISMISS = 5;     // Stop, hoặc lần kêu bị lỡ khi máy tắt
+
+    // Auto-snooze dùng thời gian cố định thay vì snooze_duration của báo thức
+    static final long AUTO_SNOOZE_MILLIS = 10 * TriggerEngine.MINUTE_MILLIS;
+
+    // Bit (1 << state) của các trạng thái nguồn hợp lệ, theo chỉ số sự kiện
+    private static final int[] SOURCES = {
+            bit(IDLE) | bit(SCHEDULED) | bit(SNOOZED) | bit(DISMISSED),       // SCHEDULE
+            bit(SCHEDULED) | bit(RINGING) | bit(SNOOZED) | bit(DISMISSED),    // DISABLE
+            bit(SCHEDULED) | bit(SNOOZED),                                    // FIRE
+            bit(RINGING),                                                     // SNOOZE
+            bit(RINGING),                                                     // AUTO_SNOOZE
+            bit(SCHEDULED) | bit(RINGING) | bit(SNOOZED),                     // DISMISS
+    };
+
+    private AlarmState() {
+    }
+
+    static int bit(int state) {
+        return 1 << state;
+    }
+
+    static int sources(int event) {
+        return SOURCES[event];
+    }
+
+    public static boolean accepts(int state, int event) {
+        return (SOURCES[event] & bit(state)) != 0;
+    }
+
+    // Trạng thái đích; chỉ DISMISS phụ thuộc báo thức có lặp lại hay không
+    public static int target(int event, boolean repeating) {
+        switch (event) {
+            case EVENT_SCHEDULE:
+                return SCHEDULED;
+            case EVENT_DISABLE:
+                return IDLE;
+            case EVENT_FIRE:
+                return RINGING;
+            case EVENT_SNOOZE:
+            case EVENT_AUTO_SNOOZE:
+                return SNOOZED;
+            case EVENT_DISMISS:
+                return repeating ? SCHEDULED : DISMISSED;
+            default:
+                throw new IllegalArgumentException("Unknown event " + event);
+        }
+    }
+
+    // next_alarm_time sau sự kiện. Báo thức lặp lại đang kêu đã có sẵn lần kế tiếp để lịch
+    // vẫn được dựng lại nếu process bị hủy giữa phiên.
+    public static long nextAlarmTime(Alarm alarm, int event, long now) {
+        switch (event) {
+            case EVENT_SCHEDULE:
+                return alarm.calculateNextAlarmTime(now);
+            case EVENT_SNOOZE:
+                return now + alarm.getSnoozeDuration() * TriggerEngine.MINUTE_MILLIS;
+            case EVENT_AUTO_SNOOZE:
+                return now + AUTO_SNOOZE_MILLIS;
+            case EVENT_FIRE:
+            case EVENT_DISMISS:
+                return alarm.isRepeating() ? alarm.calculateNextAlarmTime(now) : 0;
+            default:
+                return 0;
+        }
+    }
+
+    public static boolean isEnabled(int state) {
+        return state == SCHEDULED || state == RINGING || state == SNOOZED;
+    }
+}
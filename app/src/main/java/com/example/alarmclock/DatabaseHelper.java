@@ -5,24 +5,96 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "alarms.db";
-    private static final int DATABASE_VERSION = 2; // Tăng version để upgrade
+    private static final int DATABASE_VERSION = 6; // Tăng version để upgrade
     private static final String TABLE_ALARMS = "alarms";
     private static final String COLUMN_ID = "id";
     private static final String COLUMN_HOUR = "hour";
     private static final String COLUMN_MINUTE = "minute";
-    private static final String COLUMN_DAYS = "days";
+    private static final String COLUMN_DAYS = "days"; // Cột cũ dạng "2,3,4", chỉ dùng khi migrate
+    private static final String COLUMN_DAYS_MASK = "days_mask";
     private static final String COLUMN_SNOOZE = "snooze";
     private static final String COLUMN_ENABLED = "enabled";
     private static final String COLUMN_SNOOZING = "is_snoozing"; // Thêm cột mới
+    private static final String COLUMN_LABEL = "label";
+    private static final String COLUMN_VIBRATION = "vibration_enabled";
+    private static final String COLUMN_SNOOZE_DURATION = "snooze_duration";
+    private static final String COLUMN_RINGTONE = "ringtone";
+    private static final String COLUMN_NEXT_ALARM_TIME = "next_alarm_time";
+    // AlarmState.*; enabled và is_snoozing được ghi cùng câu lệnh để index (enabled, next_alarm_time) vẫn dùng được
+    private static final String COLUMN_STATE = "state";
+    // Tăng sau mỗi lần ghi dòng; các câu UPDATE so khớp version để không ghi đè thay đổi của luồng khác
+    private static final String COLUMN_VERSION = "version";
+    private static final String INDEX_DUE = "idx_alarms_enabled_next";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private static final String SQL_SELECT_BY_ID =
+            "SELECT * FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ID + "=? LIMIT 1";
+    private static final String SQL_SELECT_NEXT_DUE =
+            "SELECT * FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ENABLED + "=1 AND " +
+            COLUMN_NEXT_ALARM_TIME + ">? ORDER BY " + COLUMN_NEXT_ALARM_TIME + " LIMIT ?";
+    // Phân trang theo id, cũng là thứ tự hiển thị của danh sách; đi theo khóa chính nên không cần OFFSET
+    private static final String SQL_SELECT_PAGE_AFTER =
+            "SELECT * FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ID + ">? ORDER BY " + COLUMN_ID + " LIMIT ?";
+    private static final String SQL_SELECT_PAGE_BEFORE =
+            "SELECT * FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ID + "<? ORDER BY " + COLUMN_ID + " DESC LIMIT ?";
+    private static final String SQL_INSERT =
+            "INSERT INTO " + TABLE_ALARMS + " (" +
+            COLUMN_HOUR + ", " + COLUMN_MINUTE + ", " + COLUMN_DAYS_MASK + ", " +
+            COLUMN_SNOOZE + ", " + COLUMN_LABEL + ", " + COLUMN_VIBRATION + ", " +
+            COLUMN_SNOOZE_DURATION + ", " + COLUMN_RINGTONE + ", " +
+            COLUMN_STATE + ", " + COLUMN_ENABLED + ", " + COLUMN_SNOOZING + ", " + COLUMN_NEXT_ALARM_TIME +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Chỉ ghi khi version chưa đổi, trạng thái hiện tại là nguồn hợp lệ của sự kiện (bit (1 << state) trong mask)
+    // và kết quả khác với dòng hiện có; sự kiện bị từ chối hoặc lặp lại không đổi dòng nào
+    private static final String SQL_TRANSITION =
+            "UPDATE " + TABLE_ALARMS + " SET " +
+            COLUMN_STATE + "=?, " + COLUMN_ENABLED + "=?, " + COLUMN_SNOOZING + "=?, " +
+            COLUMN_NEXT_ALARM_TIME + "=?, " + COLUMN_VERSION + "=" + COLUMN_VERSION + "+1" +
+            " WHERE " + COLUMN_ID + "=? AND " + COLUMN_VERSION + "=? AND ((1 << " + COLUMN_STATE + ") & ?) != 0" +
+            " AND (" + COLUMN_STATE + "!=? OR " + COLUMN_NEXT_ALARM_TIME + "!=?)";
+    private static final String SQL_DELETE =
+            "DELETE FROM " + TABLE_ALARMS + " WHERE " + COLUMN_ID + "=?";
+    // Số tham số bind của các cột dữ liệu, đứng đầu trong SQL_INSERT
+    private static final int DATA_COLUMN_COUNT = 8;
+
+    // Nhóm cột dữ liệu cho updateAlarm(..., fields): chỉ các cột được nêu tên mới bị ghi.
+    // Các cột trạng thái chỉ được ghi qua transitionAll.
+    public static final int FIELD_TIME = 1;            // hour, minute
+    public static final int FIELD_DAYS = 1 << 1;       // days_mask
+    public static final int FIELD_SNOOZE = 1 << 2;     // snooze, snooze_duration
+    public static final int FIELD_LABEL = 1 << 3;
+    public static final int FIELD_VIBRATION = 1 << 4;
+    public static final int FIELD_RINGTONE = 1 << 5;
+    public static final int FIELDS_ALL = (1 << 6) - 1;
+    // Số lần compare-and-set không khóa trước khi đọc và ghi trong một transaction giữ khóa ghi
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 4;
+    // Câu UPDATE theo từng tổ hợp cột, dựng khi dùng lần đầu
+    private static final String[] UPDATE_SQL = new String[FIELDS_ALL + 1];
+    // Giới hạn số tham số bind của SQLite (SQLITE_MAX_VARIABLE_NUMBER)
+    private static final int MAX_BIND_ARGS = 999;
+
+    private static DatabaseHelper instance;
+
+    // Một instance dùng chung cho toàn bộ process (UI, receiver, activity)
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    // Cho phép test/benchmark dùng file database riêng
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // WAL: receiver ghi is_snoozing không chặn UI đang đọc danh sách
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -31,11 +103,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
                 COLUMN_HOUR + " INTEGER, " +
                 COLUMN_MINUTE + " INTEGER, " +
-                COLUMN_DAYS + " TEXT, " +
+                COLUMN_DAYS_MASK + " INTEGER DEFAULT 0, " +
                 COLUMN_SNOOZE + " INTEGER, " +
                 COLUMN_ENABLED + " INTEGER, " +
-                COLUMN_SNOOZING + " INTEGER)";
+                COLUMN_SNOOZING + " INTEGER, " +
+                COLUMN_LABEL + " TEXT DEFAULT '', " +
+                COLUMN_VIBRATION + " INTEGER DEFAULT 1, " +
+                COLUMN_SNOOZE_DURATION + " INTEGER DEFAULT 10, " +
+                COLUMN_RINGTONE + " TEXT DEFAULT 'default', " +
+                COLUMN_NEXT_ALARM_TIME + " INTEGER DEFAULT 0, " +
+                COLUMN_STATE + " INTEGER DEFAULT " + AlarmState.IDLE + ", " +
+                COLUMN_VERSION + " INTEGER DEFAULT 0)";
         db.execSQL(createTable);
+        createDueIndex(db);
+    }
+
+    // Index phục vụ truy vấn các báo thức sắp đến hạn
+    private void createDueIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_DUE + " ON " + TABLE_ALARMS +
+                " (" + COLUMN_ENABLED + ", " + COLUMN_NEXT_ALARM_TIME + ")");
     }
 
     @Override
@@ -43,30 +129,197 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         if (oldVersion < 2) {
             db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_SNOOZING + " INTEGER DEFAULT 0");
         }
+        if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_LABEL + " TEXT DEFAULT ''");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_VIBRATION + " INTEGER DEFAULT 1");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_SNOOZE_DURATION + " INTEGER DEFAULT 10");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_RINGTONE + " TEXT DEFAULT 'default'");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_NEXT_ALARM_TIME + " INTEGER DEFAULT 0");
+            createDueIndex(db);
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_DAYS_MASK + " INTEGER DEFAULT 0");
+            migrateDaysToMask(db);
+        }
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_STATE + " INTEGER DEFAULT " + AlarmState.IDLE);
+            db.execSQL("UPDATE " + TABLE_ALARMS + " SET " + COLUMN_STATE + "=CASE" +
+                    " WHEN " + COLUMN_ENABLED + "=0 THEN " + AlarmState.IDLE +
+                    " WHEN " + COLUMN_SNOOZING + "=1 THEN " + AlarmState.SNOOZED +
+                    " ELSE " + AlarmState.SCHEDULED + " END");
+        }
+        if (oldVersion < 6) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COLUMN_VERSION + " INTEGER DEFAULT 0");
+        }
+    }
+
+    // Chuyển cột days dạng text sang days_mask cho từng dòng
+    private void migrateDaysToMask(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_ALARMS + " SET " +
+                COLUMN_DAYS_MASK + "=? WHERE " + COLUMN_ID + "=?");
+        Cursor cursor = db.query(TABLE_ALARMS, new String[]{COLUMN_ID, COLUMN_DAYS},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                update.bindLong(1, legacyDaysToMask(cursor.getString(1)));
+                update.bindLong(2, cursor.getInt(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
     }
 
     public long addAlarm(Alarm alarm) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_HOUR, alarm.getHour());
-        values.put(COLUMN_MINUTE, alarm.getMinute());
-        values.put(COLUMN_DAYS, listToString(alarm.getDaysOfWeek()));
-        values.put(COLUMN_SNOOZE, alarm.isSnooze() ? 1 : 0);
-        values.put(COLUMN_ENABLED, alarm.isEnabled() ? 1 : 0);
-        values.put(COLUMN_SNOOZING, alarm.isSnoozing() ? 1 : 0);
+        ContentValues values = toContentValues(alarm);
+        putState(values, alarm);
+        alarm.setVersion(0);
         return db.insert(TABLE_ALARMS, null, values);
     }
 
-    public void updateAlarm(Alarm alarm) {
+    public boolean updateAlarm(Alarm alarm) {
+        return updateAlarm(alarm, FIELDS_ALL);
+    }
+
+    // Compare-and-set: chỉ ghi các cột trong fields khi version trong DB vẫn bằng alarm.getVersion().
+    // Trả về false nếu dòng đã bị ghi chen giữa hoặc đã bị xóa; khi thành công version của alarm tăng theo DB.
+    public boolean updateAlarm(Alarm alarm, int fields) {
         SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(updateSql(fields));
+        try {
+            return compareAndSet(update, alarm, fields);
+        } finally {
+            update.close();
+        }
+    }
+
+    public interface AlarmEdit {
+        void apply(Alarm alarm);
+    }
+
+    // Đọc bản mới nhất, áp dụng edit rồi compare-and-set các cột trong fields; thử lại khi luồng khác ghi chen giữa.
+    // Sau MAX_OPTIMISTIC_ATTEMPTS lần, lần cuối đọc và ghi trong transaction (giữ khóa ghi) nên luôn thành công.
+    // edit có thể được gọi nhiều lần, mỗi lần trên một bản đọc mới. Trả về bản đã lưu, null nếu báo thức đã bị xóa.
+    public Alarm updateAlarm(int id, int fields, AlarmEdit edit) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(updateSql(fields));
+        try {
+            for (int attempt = 0; attempt < MAX_OPTIMISTIC_ATTEMPTS; attempt++) {
+                Alarm alarm = getAlarmById(id);
+                if (alarm == null) {
+                    return null;
+                }
+                edit.apply(alarm);
+                if (compareAndSet(update, alarm, fields)) {
+                    return alarm;
+                }
+            }
+            db.beginTransaction();
+            try {
+                Alarm alarm = getAlarmById(id);
+                if (alarm != null) {
+                    edit.apply(alarm);
+                    compareAndSet(update, alarm, fields);
+                }
+                db.setTransactionSuccessful();
+                return alarm;
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            update.close();
+        }
+    }
+
+    private static boolean compareAndSet(SQLiteStatement update, Alarm alarm, int fields) {
+        update.clearBindings();
+        int index = bindFields(update, alarm, fields);
+        update.bindLong(index, alarm.getId());
+        update.bindLong(index + 1, alarm.getVersion());
+        if (update.executeUpdateDelete() == 0) {
+            return false;
+        }
+        alarm.setVersion(alarm.getVersion() + 1);
+        return true;
+    }
+
+    // "UPDATE alarms SET <cột trong fields>, version=version+1 WHERE id=? AND version=?"
+    private static String updateSql(int fields) {
+        String sql = UPDATE_SQL[fields];
+        if (sql == null) {
+            StringBuilder sb = new StringBuilder("UPDATE ").append(TABLE_ALARMS).append(" SET ");
+            if ((fields & FIELD_TIME) != 0) {
+                sb.append(COLUMN_HOUR).append("=?, ").append(COLUMN_MINUTE).append("=?, ");
+            }
+            if ((fields & FIELD_DAYS) != 0) {
+                sb.append(COLUMN_DAYS_MASK).append("=?, ");
+            }
+            if ((fields & FIELD_SNOOZE) != 0) {
+                sb.append(COLUMN_SNOOZE).append("=?, ").append(COLUMN_SNOOZE_DURATION).append("=?, ");
+            }
+            if ((fields & FIELD_LABEL) != 0) {
+                sb.append(COLUMN_LABEL).append("=?, ");
+            }
+            if ((fields & FIELD_VIBRATION) != 0) {
+                sb.append(COLUMN_VIBRATION).append("=?, ");
+            }
+            if ((fields & FIELD_RINGTONE) != 0) {
+                sb.append(COLUMN_RINGTONE).append("=?, ");
+            }
+            sb.append(COLUMN_VERSION).append('=').append(COLUMN_VERSION).append("+1 WHERE ")
+                    .append(COLUMN_ID).append("=? AND ").append(COLUMN_VERSION).append("=?");
+            sql = sb.toString();
+            UPDATE_SQL[fields] = sql;
+        }
+        return sql;
+    }
+
+    // Gán giá trị theo đúng thứ tự cột trong updateSql(fields), trả về chỉ số tham số kế tiếp
+    private static int bindFields(SQLiteStatement statement, Alarm alarm, int fields) {
+        int index = 1;
+        if ((fields & FIELD_TIME) != 0) {
+            statement.bindLong(index++, alarm.getHour());
+            statement.bindLong(index++, alarm.getMinute());
+        }
+        if ((fields & FIELD_DAYS) != 0) {
+            statement.bindLong(index++, alarm.getDaysMask());
+        }
+        if ((fields & FIELD_SNOOZE) != 0) {
+            statement.bindLong(index++, alarm.isSnooze() ? 1 : 0);
+            statement.bindLong(index++, alarm.getSnoozeDuration());
+        }
+        if ((fields & FIELD_LABEL) != 0) {
+            statement.bindString(index++, alarm.getLabel());
+        }
+        if ((fields & FIELD_VIBRATION) != 0) {
+            statement.bindLong(index++, alarm.isVibrationEnabled() ? 1 : 0);
+        }
+        if ((fields & FIELD_RINGTONE) != 0) {
+            statement.bindString(index++, alarm.getRingtone());
+        }
+        return index;
+    }
+
+    private ContentValues toContentValues(Alarm alarm) {
         ContentValues values = new ContentValues();
         values.put(COLUMN_HOUR, alarm.getHour());
         values.put(COLUMN_MINUTE, alarm.getMinute());
-        values.put(COLUMN_DAYS, listToString(alarm.getDaysOfWeek()));
+        values.put(COLUMN_DAYS_MASK, alarm.getDaysMask());
         values.put(COLUMN_SNOOZE, alarm.isSnooze() ? 1 : 0);
+        values.put(COLUMN_LABEL, alarm.getLabel());
+        values.put(COLUMN_VIBRATION, alarm.isVibrationEnabled() ? 1 : 0);
+        values.put(COLUMN_SNOOZE_DURATION, alarm.getSnoozeDuration());
+        values.put(COLUMN_RINGTONE, alarm.getRingtone());
+        return values;
+    }
+
+    private void putState(ContentValues values, Alarm alarm) {
+        values.put(COLUMN_STATE, alarm.getState());
         values.put(COLUMN_ENABLED, alarm.isEnabled() ? 1 : 0);
         values.put(COLUMN_SNOOZING, alarm.isSnoozing() ? 1 : 0);
-        db.update(TABLE_ALARMS, values, COLUMN_ID + "=?", new String[]{String.valueOf(alarm.getId())});
+        values.put(COLUMN_NEXT_ALARM_TIME, alarm.getNextAlarmTime());
     }
 
     public void deleteAlarm(int id) {
@@ -74,44 +327,294 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.delete(TABLE_ALARMS, COLUMN_ID + "=?", new String[]{String.valueOf(id)});
     }
 
+    // Thêm nhiều báo thức trong một transaction, gán lại id cho từng Alarm
+    public void addAlarms(Collection<Alarm> alarms) {
+        if (alarms == null || alarms.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+        db.beginTransaction();
+        try {
+            for (Alarm alarm : alarms) {
+                bindAlarm(insert, alarm);
+                insert.bindLong(DATA_COLUMN_COUNT + 1, alarm.getState());
+                insert.bindLong(DATA_COLUMN_COUNT + 2, alarm.isEnabled() ? 1 : 0);
+                insert.bindLong(DATA_COLUMN_COUNT + 3, alarm.isSnoozing() ? 1 : 0);
+                insert.bindLong(DATA_COLUMN_COUNT + 4, alarm.getNextAlarmTime());
+                alarm.setId((int) insert.executeInsert());
+                alarm.setVersion(0);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    // Compare-and-set các cột dữ liệu của nhiều báo thức trong một transaction với cùng một câu lệnh đã biên dịch.
+    // Trả về số dòng đã ghi; báo thức có version cũ bị bỏ qua.
+    public int updateAlarms(Collection<Alarm> alarms) {
+        if (alarms == null || alarms.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement update = db.compileStatement(updateSql(FIELDS_ALL));
+        db.beginTransaction();
+        try {
+            for (Alarm alarm : alarms) {
+                if (compareAndSet(update, alarm, FIELDS_ALL)) {
+                    updated++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+        }
+        return updated;
+    }
+
+    // Áp dụng một sự kiện của AlarmState cho nhiều báo thức trong một transaction: mỗi báo thức một câu UPDATE
+    // chỉ ghi state, enabled, is_snoozing và next_alarm_time. Trả về các báo thức đã thực sự chuyển trạng thái
+    // (đã cập nhật trong bộ nhớ); báo thức bị từ chối hoặc đã ở đúng trạng thái được giữ nguyên.
+    // Báo thức có version cũ được đọc lại và áp dụng lại; bản đọc lại trong transaction là mới nhất
+    // nên mỗi báo thức thử lại tối đa một lần.
+    public List<Alarm> transitionAll(Collection<Alarm> alarms, int event, long now) {
+        List<Alarm> changed = new ArrayList<>();
+        if (alarms == null || alarms.isEmpty()) {
+            return changed;
+        }
+        int sources = AlarmState.sources(event);
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement transition = db.compileStatement(SQL_TRANSITION);
+        db.beginTransaction();
+        try {
+            for (Alarm alarm : alarms) {
+                Alarm current = alarm;
+                while (true) {
+                    // Lần kêu được tính từ bản mới nhất, vd sau khi người dùng vừa sửa giờ
+                    int target = AlarmState.target(event, current.isRepeating());
+                    long nextAlarmTime = AlarmState.nextAlarmTime(current, event, now);
+                    transition.bindLong(1, target);
+                    transition.bindLong(2, AlarmState.isEnabled(target) ? 1 : 0);
+                    transition.bindLong(3, target == AlarmState.SNOOZED ? 1 : 0);
+                    transition.bindLong(4, nextAlarmTime);
+                    transition.bindLong(5, current.getId());
+                    transition.bindLong(6, current.getVersion());
+                    transition.bindLong(7, sources);
+                    transition.bindLong(8, target);
+                    transition.bindLong(9, nextAlarmTime);
+                    if (transition.executeUpdateDelete() > 0) {
+                        if (current != alarm) {
+                            alarm.copyFrom(current);
+                        }
+                        alarm.setState(target);
+                        alarm.setNextAlarmTime(nextAlarmTime);
+                        alarm.setVersion(current.getVersion() + 1);
+                        changed.add(alarm);
+                        break;
+                    }
+                    // Không đổi dòng nào: bị từ chối, lặp lại, hoặc bản trong bộ nhớ đã cũ
+                    Alarm fresh = getAlarmById(alarm.getId());
+                    if (fresh == null || fresh.getVersion() == current.getVersion()) {
+                        if (fresh != null) {
+                            alarm.copyFrom(fresh);
+                        }
+                        break;
+                    }
+                    current = fresh;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            transition.close();
+        }
+        return changed;
+    }
+
+    public boolean transition(Alarm alarm, int event, long now) {
+        return !transitionAll(Collections.singletonList(alarm), event, now).isEmpty();
+    }
+
+    // Xóa nhiều báo thức trong một transaction
+    public void deleteAlarms(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement delete = db.compileStatement(SQL_DELETE);
+        db.beginTransaction();
+        try {
+            for (int id : ids) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+        }
+    }
+
+    // Gán các cột dữ liệu theo đúng thứ tự trong SQL_INSERT
+    private void bindAlarm(SQLiteStatement statement, Alarm alarm) {
+        statement.clearBindings();
+        statement.bindLong(1, alarm.getHour());
+        statement.bindLong(2, alarm.getMinute());
+        statement.bindLong(3, alarm.getDaysMask());
+        statement.bindLong(4, alarm.isSnooze() ? 1 : 0);
+        statement.bindString(5, alarm.getLabel());
+        statement.bindLong(6, alarm.isVibrationEnabled() ? 1 : 0);
+        statement.bindLong(7, alarm.getSnoozeDuration());
+        statement.bindString(8, alarm.getRingtone());
+    }
+
     public List<Alarm> getAllAlarms() {
         List<Alarm> alarms = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_ALARMS, null, null, null, null, null, null);
         while (cursor.moveToNext()) {
-            int id = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID));
-            int hour = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_HOUR));
-            int minute = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MINUTE));
-            String daysStr = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DAYS));
-            boolean snooze = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SNOOZE)) == 1;
-            boolean enabled = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ENABLED)) == 1;
-            boolean isSnoozing = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SNOOZING)) == 1;
-            List<Integer> days = stringToList(daysStr);
-            Alarm alarm = new Alarm(id, hour, minute, days, snooze, enabled);
-            alarm.setSnoozing(isSnoozing);
-            alarms.add(alarm);
+            alarms.add(cursorToAlarm(cursor));
         }
         cursor.close();
         return alarms;
     }
 
-    private String listToString(List<Integer> days) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < days.size(); i++) {
-            sb.append(days.get(i));
-            if (i < days.size() - 1) sb.append(",");
+    // Tối đa limit báo thức có id lớn hơn afterId, theo id tăng dần
+    public List<Alarm> getAlarmsAfter(int afterId, int limit) {
+        return queryPage(SQL_SELECT_PAGE_AFTER, afterId, limit);
+    }
+
+    // Tối đa limit báo thức ngay trước beforeId, trả về theo id tăng dần
+    public List<Alarm> getAlarmsBefore(int beforeId, int limit) {
+        List<Alarm> alarms = queryPage(SQL_SELECT_PAGE_BEFORE, beforeId, limit);
+        Collections.reverse(alarms);
+        return alarms;
+    }
+
+    private List<Alarm> queryPage(String sql, int id, int limit) {
+        List<Alarm> alarms = new ArrayList<>(limit);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql, new String[]{String.valueOf(id), String.valueOf(limit)});
+        try {
+            while (cursor.moveToNext()) {
+                alarms.add(cursorToAlarm(cursor));
+            }
+        } finally {
+            cursor.close();
         }
-        return sb.toString();
+        return alarms;
+    }
+
+    // Tra cứu một báo thức theo khóa chính, dùng trên đường kích hoạt (receiver/activity)
+    public Alarm getAlarmById(int id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        // SQL cố định nên SQLite dùng lại câu lệnh đã biên dịch trong statement cache
+        Cursor cursor = db.rawQuery(SQL_SELECT_BY_ID, new String[]{String.valueOf(id)});
+        try {
+            return cursor.moveToFirst() ? cursorToAlarm(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Tra cứu nhiều báo thức theo id trong ít truy vấn nhất có thể
+    public List<Alarm> getAlarmsByIds(Collection<Integer> ids) {
+        List<Alarm> alarms = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return alarms;
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int start = 0; start < idList.size(); start += MAX_BIND_ARGS) {
+            int end = Math.min(start + MAX_BIND_ARGS, idList.size());
+            String[] args = new String[end - start];
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (i > start) placeholders.append(',');
+                placeholders.append('?');
+                args[i - start] = String.valueOf(idList.get(i));
+            }
+            Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_ALARMS +
+                    " WHERE " + COLUMN_ID + " IN (" + placeholders + ")", args);
+            try {
+                while (cursor.moveToNext()) {
+                    alarms.add(cursorToAlarm(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return alarms;
+    }
+
+    // Lấy tất cả báo thức đang bật trong một truy vấn
+    public List<Alarm> getEnabledAlarms() {
+        List<Alarm> alarms = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_ALARMS, null, COLUMN_ENABLED + "=1", null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                alarms.add(cursorToAlarm(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return alarms;
+    }
+
+    // Lấy tối đa limit báo thức đang bật sắp kêu sau thời điểm now, dùng index (enabled, next_alarm_time)
+    public List<Alarm> getNextDueAlarms(long now, int limit) {
+        List<Alarm> alarms = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(SQL_SELECT_NEXT_DUE,
+                new String[]{String.valueOf(now), String.valueOf(limit)});
+        try {
+            while (cursor.moveToNext()) {
+                alarms.add(cursorToAlarm(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return alarms;
+    }
+
+    private Alarm cursorToAlarm(Cursor cursor) {
+        int id = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID));
+        int hour = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_HOUR));
+        int minute = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MINUTE));
+        int daysMask = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_DAYS_MASK));
+        boolean snooze = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SNOOZE)) == 1;
+        int state = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_STATE));
+        String label = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_LABEL));
+        boolean vibration = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_VIBRATION)) == 1;
+        int snoozeDuration = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SNOOZE_DURATION));
+        Alarm alarm = new Alarm(id, hour, minute, null, snooze, AlarmState.isEnabled(state), label, vibration, snoozeDuration);
+        alarm.setDaysMask(daysMask);
+        alarm.setState(state);
+        alarm.setVersion(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_VERSION)));
+        alarm.setRingtone(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_RINGTONE)));
+        alarm.setNextAlarmTime(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_NEXT_ALARM_TIME)));
+        return alarm;
     }
 
-    private List<Integer> stringToList(String daysStr) {
-        List<Integer> days = new ArrayList<>();
+    private static int legacyDaysToMask(String daysStr) {
+        int mask = Alarm.DaysOfWeek.NONE;
         if (daysStr != null && !daysStr.isEmpty()) {
-            String[] parts = daysStr.split(",");
-            for (String part : parts) {
-                days.add(Integer.parseInt(part.trim()));
+            for (String part : daysStr.split(",")) {
+                try {
+                    int day = Integer.parseInt(part.trim());
+                    if (day >= 1 && day <= 7) {
+                        mask |= Alarm.DaysOfWeek.bit(day);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Bỏ qua giá trị hỏng trong dữ liệu cũ
+                }
             }
         }
-        return days;
+        return mask;
     }
 }
\ No newline at end of file
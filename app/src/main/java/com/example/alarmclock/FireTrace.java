@@ -0,0 +1,52 @@
+package com.example.alarmclock;
+
+import android.os.Trace;
+
+// Đo đường đi từ lúc AlarmReceiver nhận broadcast đến khung hình đầu tiên và lúc âm thanh bắt đầu phát.
+// Mỗi giai đoạn là một section của android.os.Trace (xem bằng Perfetto/systrace)
+// và đồng thời được ghi vào SpanRecorder để xem lại N lần kêu gần nhất trong màn hình debug.
+public final class FireTrace {
+    public static final String RECEIVE = "AlarmReceiver.onReceive";
+    public static final String START_SERVICE = "AlarmReceiver.startRingingService";
+    public static final String START_ACTIVITY = "AlarmReceiver.startActivity";
+    public static final String ACTIVITY_CREATE = "AlarmActivity.onCreate";
+    public static final String SET_CONTENT_VIEW = "AlarmActivity.setContentView";
+    public static final String FIRST_FRAME = "AlarmActivity.firstFrame";
+    public static final String SESSION_START = "RingingService.sessionStart";
+    public static final String SESSION_JOIN = "RingingService.sessionJoin";
+    public static final String PREPARE_AUDIO = "RingingService.prepareAudio";
+    public static final String PLAY = "RingingService.startAudio";
+
+    private static final int CAPACITY = 16;
+    private static final int MAX_SPANS = 12;
+    private static final SpanRecorder RECORDER = new SpanRecorder(CAPACITY, MAX_SPANS);
+
+    private FireTrace() {
+    }
+
+    // Gọi đầu AlarmReceiver.onReceive để mở timeline mới
+    public static void startFire(int alarmId) {
+        RECORDER.begin(alarmId, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    // begin/end phải gọi theo cặp trên cùng một luồng (yêu cầu của Trace)
+    public static long begin(String name) {
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    public static void end(int alarmId, String name, long startNanos) {
+        Trace.endSection();
+        RECORDER.span(alarmId, name, startNanos, System.nanoTime());
+    }
+
+    // Mốc tức thời, vd khung hình đầu tiên
+    public static void mark(int alarmId, String name) {
+        long now = System.nanoTime();
+        RECORDER.span(alarmId, name, now, now);
+    }
+
+    public static String dump() {
+        return RECORDER.dump();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.alarmclock;
+
+import java.util.Arrays;
+
+// Histogram độ trễ với các bucket cố định: ghi một lần chỉ là tìm bucket và tăng một phần tử mảng.
+// Percentile trả về cận trên của bucket chứa nó, đủ để so sánh giữa các máy/phiên bản OS.
+final class LatenessHistogram {
+    // Cận trên (ms, không bao gồm) của từng bucket; bucket cuối chứa mọi giá trị lớn hơn
+    static final long[] BOUNDS = {
+            100, 250, 500, 1_000, 2_000, 5_000, 10_000, 30_000,
+            60_000, 120_000, 300_000, 600_000, 1_800_000, 3_600_000
+    };
+
+    private final long[] counts = new long[BOUNDS.length + 1];
+
+    // Giao sớm (giá trị âm) được tính vào bucket đầu tiên
+    void record(long latenessMillis) {
+        counts[bucketOf(latenessMillis)]++;
+    }
+
+    long count() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    long countAt(int bucket) {
+        return counts[bucket];
+    }
+
+    int bucketCount() {
+        return counts.length;
+    }
+
+    // Cận trên của bucket chứa percentile p (0..100); Long.MAX_VALUE nếu rơi vào bucket cuối, -1 nếu rỗng
+    long percentile(double p) {
+        long total = count();
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * p / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BOUNDS.length ? BOUNDS[i] : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    // Dạng lưu trữ: số đếm từng bucket cách nhau bởi dấu phẩy
+    String encode() {
+        StringBuilder sb = new StringBuilder(counts.length * 2);
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    // Dữ liệu hỏng hoặc khác số bucket thì bỏ qua và bắt đầu lại từ đầu
+    static LatenessHistogram decode(String data) {
+        LatenessHistogram histogram = new LatenessHistogram();
+        if (data == null || data.isEmpty()) {
+            return histogram;
+        }
+        String[] parts = data.split(",");
+        if (parts.length != histogram.counts.length) {
+            return histogram;
+        }
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                histogram.counts[i] = Long.parseLong(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            histogram.clear();
+        }
+        return histogram;
+    }
+
+    static String formatBound(long bound) {
+        if (bound < 0) {
+            return "-";
+        }
+        if (bound == Long.MAX_VALUE) {
+            return "> " + formatMillis(BOUNDS[BOUNDS.length - 1]);
+        }
+        return "< " + formatMillis(bound);
+    }
+
+    static String formatMillis(long millis) {
+        if (millis < 1_000) {
+            return millis + "ms";
+        }
+        if (millis < 60_000) {
+            return millis / 1_000 + "s";
+        }
+        return millis / 60_000 + "m";
+    }
+
+    private static int bucketOf(long latenessMillis) {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (latenessMillis < BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS.length;
+    }
+}
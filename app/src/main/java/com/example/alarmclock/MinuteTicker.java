@@ -0,0 +1,43 @@
+package com.example.alarmclock;
+
+import android.os.Handler;
+import android.os.Looper;
+
+// Gọi listener trên main thread ở đầu mỗi phút theo đồng hồ hệ thống, chỉ trong khoảng start() .. stop().
+// Chỉ có một Runnable được hẹn tại một thời điểm; khi dừng không còn gì trong hàng đợi nên không tốn gì ở nền.
+final class MinuteTicker {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable listener;
+    private boolean running;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            listener.run();
+            scheduleNext();
+        }
+    };
+
+    MinuteTicker(Runnable listener) {
+        this.listener = listener;
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduleNext();
+    }
+
+    void stop() {
+        running = false;
+        handler.removeCallbacks(tick);
+    }
+
+    // Hẹn lại theo giờ hệ thống mỗi lần nên không bị trôi; nếu Handler chạy sớm vài ms trước đầu phút
+    // thì lần kế tiếp chỉ cách vài ms và chuỗi đếm ngược vẫn đúng sau đầu phút
+    private void scheduleNext() {
+        handler.postDelayed(tick, TriggerEngine.millisToNextMinute(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.alarmclock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Phần không phụ thuộc Android của cache PCM: tên file theo (URI, phiên bản nguồn), header và loại bỏ LRU.
+// Mỗi file gồm HEADER_SIZE byte header rồi tới dữ liệu PCM thô; thời gian sửa file được dùng làm mốc LRU.
+final class PcmCacheStore {
+    static final int HEADER_SIZE = 16;
+    private static final int MAGIC = 0x50434D31; // "PCM1"
+    static final String SUFFIX = ".pcm";
+
+    private final File dir;
+    private final long budgetBytes;
+
+    PcmCacheStore(File dir, long budgetBytes) {
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+    }
+
+    // version là thời điểm sửa đổi (hoặc kích thước) của nguồn, nên đổi file nguồn sẽ ra khóa mới
+    File fileFor(String uri, long version) {
+        return new File(dir, key(uri, version) + SUFFIX);
+    }
+
+    // File đã giải mã hợp lệ hoặc null; lần truy cập được ghi lại để LRU giữ file đang dùng
+    File lookup(String uri, long version) {
+        File file = fileFor(uri, version);
+        if (!file.isFile() || file.length() <= HEADER_SIZE) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    // Xóa các file cũ nhất tới khi tổng dung lượng nằm trong ngân sách; keep (có thể null) không bị xóa
+    void evict(File keep) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= budgetBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= budgetBytes) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    File dir() {
+        return dir;
+    }
+
+    static String key(String uri, long version) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(uri.getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(8).putLong(version).array());
+            byte[] hash = digest.digest();
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void writeHeader(RandomAccessFile file, Format format) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(format.sampleRate).putInt(format.channelCount).putInt(format.encoding);
+        file.seek(0);
+        file.write(header.array());
+    }
+
+    // Header hỏng hoặc không đúng magic thì trả về null
+    static Format readHeader(ByteBuffer header) {
+        if (header.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = header.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int sampleRate = buffer.getInt();
+        int channelCount = buffer.getInt();
+        int encoding = buffer.getInt();
+        if (sampleRate <= 0 || channelCount <= 0) {
+            return null;
+        }
+        return new Format(sampleRate, channelCount, encoding);
+    }
+
+    static final class Format {
+        final int sampleRate;
+        final int channelCount;
+        // Giá trị AudioFormat.ENCODING_*
+        final int encoding;
+
+        Format(int sampleRate, int channelCount, int encoding) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.encoding = encoding;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.alarmclock;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Phát lặp một file PCM của RingtoneCache: file được map vào bộ nhớ và đưa thẳng vào AudioTrack,
+// không giải mã và không copy qua buffer trung gian.
+final class PcmPlayer {
+    private static final String TAG = "PcmPlayer";
+
+    private final AudioTrack track;
+    private final ByteBuffer data;
+    private final int chunkBytes;
+    private volatile boolean running;
+    private Thread thread;
+
+    private PcmPlayer(AudioTrack track, ByteBuffer data, int chunkBytes) {
+        this.track = track;
+        this.data = data;
+        this.chunkBytes = chunkBytes;
+    }
+
+    static PcmPlayer open(File file) throws IOException {
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // Mapping vẫn dùng được sau khi đóng channel
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        PcmCacheStore.Format format = PcmCacheStore.readHeader(mapped);
+        if (format == null) {
+            throw new IOException("Bad PCM cache file " + file);
+        }
+        mapped.position(PcmCacheStore.HEADER_SIZE);
+        ByteBuffer pcm = mapped.slice();
+
+        int channelMask = format.channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int minBuffer = AudioTrack.getMinBufferSize(format.sampleRate, channelMask, format.encoding);
+        if (minBuffer <= 0) {
+            throw new IOException("Unsupported PCM format in " + file);
+        }
+        AudioTrack track = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ALARM)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(format.sampleRate)
+                        .setChannelMask(channelMask)
+                        .setEncoding(format.encoding)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(minBuffer * 2)
+                .build();
+        return new PcmPlayer(track, pcm, minBuffer);
+    }
+
+    void start() {
+        running = true;
+        track.play();
+        thread = new Thread(this::feed, TAG);
+        thread.start();
+    }
+
+    void release() {
+        running = false;
+        track.pause();
+        track.flush();
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        track.release();
+    }
+
+    private void feed() {
+        ByteBuffer view = data.duplicate();
+        // Bội số của mọi kích thước frame hỗ trợ (16-bit/float, mono/stereo)
+        int frameAlignedChunk = Math.max(8, chunkBytes - chunkBytes % 8);
+        while (running) {
+            if (!view.hasRemaining()) {
+                view.position(0); // Lặp lại từ đầu
+            }
+            int size = Math.min(frameAlignedChunk, view.remaining());
+            view.limit(view.position() + size);
+            int written = track.write(view, size, AudioTrack.WRITE_BLOCKING);
+            view.limit(view.capacity());
+            if (written < 0) {
+                Log.w(TAG, "AudioTrack write failed: " + written);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.alarmclock;
+
+import android.content.BroadcastReceiver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Chạy phần việc SQLite/AlarmManager của BroadcastReceiver trên một luồng nền riêng qua goAsync().
+// Một luồng duy nhất nên các receiver ghi DB và đặt lịch theo đúng thứ tự nhận broadcast.
+final class ReceiverWork {
+    private static final String TAG = "ReceiverWork";
+    // goAsync cho khoảng 10 giây; kết thúc sớm hơn để không bị ANR
+    static final long DEADLINE_MILLIS = 8_000;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, TAG));
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private ReceiverWork() {
+    }
+
+    // Việc nền không gắn với broadcast (vd auto-snooze của RingingService); cùng luồng nên giữ thứ tự với các receiver
+    static void execute(Runnable work) {
+        EXECUTOR.execute(work);
+    }
+
+    // receivedAt là SystemClock.uptimeMillis() lúc bắt đầu onReceive, dùng để log thời gian giữ main thread
+    static void run(BroadcastReceiver receiver, String tag, long receivedAt, Runnable work) {
+        BroadcastReceiver.PendingResult result = receiver.goAsync();
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable deadline = () -> {
+            if (finished.compareAndSet(false, true)) {
+                Log.w(tag, "Work exceeded " + DEADLINE_MILLIS + "ms, finishing early");
+                result.finish();
+            }
+        };
+        MAIN_HANDLER.postDelayed(deadline, DEADLINE_MILLIS);
+
+        EXECUTOR.execute(() -> {
+            long start = SystemClock.uptimeMillis();
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                Log.e(tag, "Background work failed", e);
+            } finally {
+                MAIN_HANDLER.removeCallbacks(deadline);
+                if (finished.compareAndSet(false, true)) {
+                    result.finish();
+                }
+                long end = SystemClock.uptimeMillis();
+                Log.d(tag, "Background work " + (end - start) + "ms, queued " + (start - receivedAt) +
+                        "ms, total " + (end - receivedAt) + "ms");
+            }
+        });
+        Log.d(tag, "Main thread held " + (SystemClock.uptimeMillis() - receivedAt) + "ms");
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.alarmclock;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Foreground service giữ việc phát âm báo thức. AlarmReceiver khởi động service trước khi mở AlarmActivity
+// nên âm thanh bắt đầu mà không phải chờ activity khởi động và inflate layout; activity chỉ bind vào để điều khiển.
+// Các báo thức kêu trong lúc đang kêu được gộp vào cùng một phiên: một luồng âm thanh, một thông báo,
+// và Snooze/Stop áp dụng cho cả nhóm.
+public class RingingService extends Service {
+    private static final String TAG = "RingingService";
+    private static final long AUTO_SNOOZE_DELAY = 180 * 1000; // 3 phút
+    // Id báo thức luôn dương, -1 dành cho thông báo báo thức bị lỡ
+    private static final int SESSION_NOTIFICATION_ID = -2;
+    static final String EXTRA_ALARM_IDS = "alarm_ids";
+
+    // Service đang chạy (chỉ truy cập trên main thread), để Snooze/Stop kết thúc phiên trực tiếp
+    private static RingingService running;
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable autoSnoozeRunnable = this::autoSnooze;
+
+    private MediaPlayer player;
+    private PcmPlayer pcmPlayer;
+    // Các báo thức trong phiên hiện tại theo thứ tự kêu -> có phải lần kêu sau snooze không
+    private final Map<Integer, Boolean> session = new LinkedHashMap<>();
+    // Bản chụp báo thức (AlarmCodec) gửi kèm lúc kêu, để AlarmActivity hiển thị mà không đọc DB trên main thread
+    private final Map<Integer, Alarm> sessionAlarms = new LinkedHashMap<>();
+    private SessionListener listener;
+    private boolean ringing;
+
+    // AlarmActivity nhận thông báo khi nhóm báo thức thay đổi hoặc phiên kết thúc
+    interface SessionListener {
+        void onSessionChanged(ArrayList<Integer> alarmIds, List<Alarm> alarms, boolean snoozeAllowed);
+
+        void onSessionEnded();
+    }
+
+    // alarmData là báo thức đã mã hóa bằng AlarmCodec (có thể null)
+    public static void start(Context context, int alarmId, boolean snooze, String ringtone, byte[] alarmData) {
+        Intent intent = new Intent(context, RingingService.class);
+        intent.putExtra("alarm_id", alarmId);
+        intent.putExtra("snooze", snooze);
+        intent.putExtra("ringtone", ringtone);
+        intent.putExtra(AlarmCodec.EXTRA_ALARM_DATA, alarmData);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    // Gọi trên main thread (SnoozeReceiver/StopReceiver). stopService không đủ: khi AlarmActivity đang bind,
+    // service không bị hủy nên âm thanh vẫn phát; phiên được kết thúc trực tiếp trên service đang chạy.
+    public static void stop(Context context) {
+        if (running != null) {
+            running.endSession();
+        }
+    }
+
+    // Id các báo thức mà Intent Snooze/Stop áp dụng: cả nhóm nếu có, nếu không thì một báo thức
+    static ArrayList<Integer> alarmIdsFrom(Intent intent) {
+        ArrayList<Integer> ids = intent.getIntegerArrayListExtra(EXTRA_ALARM_IDS);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            ids.add(intent.getIntExtra("alarm_id", 0));
+        }
+        return ids;
+    }
+
+    public class LocalBinder extends Binder {
+        RingingService getService() {
+            return RingingService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        running = this;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null) {
+            // Không tự khởi động lại sau khi process bị hủy, AlarmReceiver sẽ khởi động lại khi cần
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        int alarmId = intent.getIntExtra("alarm_id", 0);
+        boolean snooze = intent.getBooleanExtra("snooze", false);
+        String ringtone = intent.getStringExtra("ringtone");
+        boolean newSession = session.isEmpty();
+        session.put(alarmId, snooze);
+        Alarm alarm = AlarmCodec.fromIntent(intent);
+        if (alarm != null) {
+            sessionAlarms.put(alarmId, alarm);
+        }
+
+        // Phải gọi startForeground mỗi lần startForegroundService (giới hạn 5 giây); cùng id nên chỉ cập nhật thông báo
+        ServiceCompat.startForeground(this, SESSION_NOTIFICATION_ID, buildNotification(),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+        if (newSession) {
+            FireTrace.mark(alarmId, FireTrace.SESSION_START);
+            startPlayback(alarmId, ringtone);
+            handler.postDelayed(autoSnoozeRunnable, AUTO_SNOOZE_DELAY);
+        } else {
+            // Báo thức cùng lúc: giữ luồng âm thanh và hẹn giờ auto-snooze của phiên đang kêu
+            FireTrace.mark(alarmId, FireTrace.SESSION_JOIN);
+            Log.d(TAG, "Alarm ID=" + alarmId + " joined ringing session " + session.keySet());
+        }
+        if (listener != null) {
+            listener.onSessionChanged(activeAlarmIds(), activeAlarms(), isSnoozeAllowed());
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(autoSnoozeRunnable);
+        releasePlayer();
+        sessionAlarms.clear();
+        if (!session.isEmpty()) {
+            session.clear();
+            if (listener != null) {
+                listener.onSessionEnded();
+            }
+        }
+        if (running == this) {
+            running = null;
+        }
+        super.onDestroy();
+    }
+
+    // Dừng âm thanh, bỏ thông báo và xóa nhóm báo thức ngay cả khi service còn được bind; lần kêu sau
+    // (vd sau snooze) bắt đầu một phiên mới với hẹn giờ auto-snooze riêng
+    private void endSession() {
+        handler.removeCallbacks(autoSnoozeRunnable);
+        releasePlayer();
+        session.clear();
+        sessionAlarms.clear();
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        if (listener != null) {
+            listener.onSessionEnded();
+        }
+        stopSelf();
+    }
+
+    boolean isRinging() {
+        return ringing && !session.isEmpty();
+    }
+
+    ArrayList<Integer> activeAlarmIds() {
+        return new ArrayList<>(session.keySet());
+    }
+
+    // Theo thứ tự kêu; báo thức không có bản chụp (dữ liệu hỏng) bị bỏ qua
+    List<Alarm> activeAlarms() {
+        return new ArrayList<>(sessionAlarms.values());
+    }
+
+    // Giống AlarmActivity trước đây: không cho snooze tiếp khi mọi báo thức đều đang kêu lại sau snooze
+    boolean isSnoozeAllowed() {
+        for (boolean snooze : session.values()) {
+            if (!snooze) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void setSessionListener(SessionListener listener) {
+        this.listener = listener;
+    }
+
+    private void startPlayback(int alarmId, String ringtone) {
+        releasePlayer();
+        Uri uri = RingtonePreloader.resolve(ringtone);
+        long prepareStart = FireTrace.begin(FireTrace.PREPARE_AUDIO);
+        try {
+            // Ringtone tùy chọn đã giải mã sẵn: phát thẳng file PCM, không cần giải mã
+            if (!RingtonePreloader.isDefault(ringtone)) {
+                pcmPlayer = openCachedPlayer(ringtone);
+            }
+            if (pcmPlayer == null) {
+                player = createPlayerWithFallback(uri);
+            }
+        } finally {
+            FireTrace.end(alarmId, FireTrace.PREPARE_AUDIO, prepareStart);
+        }
+
+        long playStart = FireTrace.begin(FireTrace.PLAY);
+        if (pcmPlayer != null) {
+            pcmPlayer.start();
+            ringing = true;
+        } else if (player != null) {
+            player.start();
+            ringing = true;
+            // Chưa có bản giải mã: chuẩn bị cho lần kêu sau
+            RingtonePreloader.preload(this, ringtone);
+        }
+        FireTrace.end(alarmId, FireTrace.PLAY, playStart);
+    }
+
+    private PcmPlayer openCachedPlayer(String ringtone) {
+        File pcm = RingtonePreloader.cachedPcm(this, ringtone);
+        if (pcm == null) {
+            return null;
+        }
+        try {
+            return PcmPlayer.open(pcm);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot play cached PCM " + pcm + ", using MediaPlayer", e);
+            pcm.delete();
+            return null;
+        }
+    }
+
+    private MediaPlayer createPlayerWithFallback(Uri uri) {
+        try {
+            return createPlayer(uri);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot play " + uri + ", falling back to default", e);
+            try {
+                return createPlayer(RingtonePreloader.defaultUri());
+            } catch (IOException | RuntimeException fallbackError) {
+                Log.e(TAG, "Cannot play default alarm sound", fallbackError);
+                return null;
+            }
+        }
+    }
+
+    private MediaPlayer createPlayer(Uri uri) throws IOException {
+        MediaPlayer mediaPlayer = new MediaPlayer();
+        try {
+            mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ALARM)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build());
+            mediaPlayer.setDataSource(this, uri);
+            mediaPlayer.setLooping(true);
+            mediaPlayer.prepare();
+            return mediaPlayer;
+        } catch (IOException | RuntimeException e) {
+            mediaPlayer.release();
+            throw e;
+        }
+    }
+
+    private void releasePlayer() {
+        ringing = false;
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+        if (pcmPlayer != null) {
+            pcmPlayer.release();
+            pcmPlayer = null;
+        }
+    }
+
+    // Không ai bấm Snooze/Stop sau 3 phút: tự snooze 10 phút cho cả nhóm rồi kết thúc phiên
+    private void autoSnooze() {
+        ArrayList<Integer> alarmIds = activeAlarmIds();
+        endSession();
+        Context appContext = getApplicationContext();
+        ReceiverWork.execute(() -> {
+            // Lưu thời điểm snooze để dựng lại lịch khi process bị hủy; báo thức vừa được
+            // Snooze/Stop trên luồng này không còn RINGING nên không bị ghi đè
+            DatabaseHelper dbHelper = DatabaseHelper.getInstance(appContext);
+            List<Alarm> snoozed = dbHelper.transitionAll(dbHelper.getAlarmsByIds(alarmIds),
+                    AlarmState.EVENT_AUTO_SNOOZE, System.currentTimeMillis());
+            AlarmScheduler.getInstance(appContext).scheduleAll(snoozed, TriggerStats.TYPE_AUTO_SNOOZE);
+            Log.d(TAG, "Scheduled auto-snooze for alarms " + alarmIds);
+        });
+    }
+
+    private Notification buildNotification() {
+        ArrayList<Integer> alarmIds = activeAlarmIds();
+        int firstId = alarmIds.get(0);
+
+        Intent fullScreenIntent = new Intent(this, AlarmActivity.class);
+        fullScreenIntent.putExtra("alarm_id", firstId);
+        fullScreenIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
+                this,
+                0,
+                fullScreenIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        Intent snoozeIntent = new Intent(this, SnoozeReceiver.class);
+        snoozeIntent.putIntegerArrayListExtra(EXTRA_ALARM_IDS, alarmIds);
+        PendingIntent snoozePendingIntent = PendingIntent.getBroadcast(
+                this,
+                0,
+                snoozeIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        Intent stopIntent = new Intent(this, StopReceiver.class);
+        stopIntent.putIntegerArrayListExtra(EXTRA_ALARM_IDS, alarmIds);
+        PendingIntent stopPendingIntent = PendingIntent.getBroadcast(
+                this,
+                0,
+                stopIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, "alarm_channel")
+                .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                .setContentTitle(alarmIds.size() == 1 ? "Alarm" : alarmIds.size() + " alarms")
+                .setContentText("Time to wake up!")
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .setContentIntent(fullScreenPendingIntent)
+                .setFullScreenIntent(fullScreenPendingIntent, true);
+        if (isSnoozeAllowed()) {
+            builder.addAction(android.R.drawable.ic_menu_recent_history, "Snooze", snoozePendingIntent);
+        }
+        builder.addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop", stopPendingIntent);
+        return builder.build();
+    }
+}
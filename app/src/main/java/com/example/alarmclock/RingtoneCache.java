@@ -0,0 +1,181 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+// Giải mã ringtone tùy chọn một lần thành file PCM trong bộ nhớ app, để lúc kêu chỉ cần đọc file bằng mmap
+// thay vì giải mã lại từ content URI (có thể mất vài giây trên bộ nhớ chậm).
+final class RingtoneCache {
+    private static final String TAG = "RingtoneCache";
+    private static final long BUDGET_BYTES = 48L * 1024 * 1024;
+    // Khoảng 95 giây stereo 44.1 kHz; báo thức phát lặp nên phần đầu là đủ
+    private static final long MAX_PCM_BYTES = 16L * 1024 * 1024;
+    private static final long TIMEOUT_US = 10_000;
+
+    private static PcmCacheStore store;
+
+    private RingtoneCache() {
+    }
+
+    private static synchronized PcmCacheStore store(Context context) {
+        if (store == null) {
+            File dir = new File(context.getApplicationContext().getFilesDir(), "ringtone_pcm");
+            dir.mkdirs();
+            store = new PcmCacheStore(dir, BUDGET_BYTES);
+        }
+        return store;
+    }
+
+    // File PCM đã có cho uri ở phiên bản version (lấy từ lần preload), không truy vấn ContentResolver
+    static File lookup(Context context, Uri uri, long version) {
+        return store(context).lookup(uri.toString(), version);
+    }
+
+    // Giải mã nếu chưa có; trả về file PCM hoặc null nếu giải mã không được. Gọi trên luồng nền.
+    static File ensure(Context context, Uri uri, long version) {
+        PcmCacheStore cacheStore = store(context);
+        File cached = cacheStore.lookup(uri.toString(), version);
+        if (cached != null) {
+            return cached;
+        }
+
+        File target = cacheStore.fileFor(uri.toString(), version);
+        File temp = new File(cacheStore.dir(), target.getName() + ".tmp");
+        long start = System.nanoTime();
+        try {
+            long bytes = decode(context, uri, temp);
+            if (!temp.renameTo(target)) {
+                throw new IOException("Cannot rename " + temp);
+            }
+            cacheStore.evict(target);
+            Log.d(TAG, "Decoded " + uri + " to " + bytes + " PCM bytes in " +
+                    (System.nanoTime() - start) / 1_000_000 + "ms");
+            return target;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to decode " + uri, e);
+            temp.delete();
+            return null;
+        }
+    }
+
+    // Thời điểm sửa đổi của nguồn (hoặc kích thước nếu provider không cung cấp); -1 nếu nguồn không còn
+    static long sourceVersion(Context context, Uri uri) {
+        try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return -1;
+            }
+            for (String column : new String[]{"last_modified", "date_modified", OpenableColumns.SIZE}) {
+                int index = cursor.getColumnIndex(column);
+                if (index >= 0 && !cursor.isNull(index)) {
+                    return cursor.getLong(index);
+                }
+            }
+            return 0;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Ringtone source unavailable: " + uri, e);
+            return -1;
+        }
+    }
+
+    private static long decode(Context context, Uri uri, File out) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (RandomAccessFile file = new RandomAccessFile(out, "rw")) {
+            file.setLength(0);
+            extractor.setDataSource(context, uri, null);
+            MediaFormat inputFormat = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    inputFormat = format;
+                    break;
+                }
+            }
+            if (inputFormat == null) {
+                throw new IOException("No audio track in " + uri);
+            }
+
+            codec = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            codec.configure(inputFormat, null, null, 0);
+            codec.start();
+
+            PcmCacheStore.Format format = new PcmCacheStore.Format(
+                    inputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    inputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT),
+                    AudioFormat.ENCODING_PCM_16BIT);
+            file.seek(PcmCacheStore.HEADER_SIZE);
+            long written = 0;
+            boolean inputDone = false;
+            boolean outputDone = false;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            byte[] chunk = new byte[0];
+
+            while (!outputDone && written < MAX_PCM_BYTES) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    format = new PcmCacheStore.Format(
+                            outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                            outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT),
+                            outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                                    ? outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING)
+                                    : AudioFormat.ENCODING_PCM_16BIT);
+                } else if (outIndex >= 0) {
+                    if (info.size > 0) {
+                        ByteBuffer output = codec.getOutputBuffer(outIndex);
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        if (chunk.length < info.size) {
+                            chunk = new byte[info.size];
+                        }
+                        output.get(chunk, 0, info.size);
+                        file.write(chunk, 0, info.size);
+                        written += info.size;
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    outputDone = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                }
+            }
+
+            if (written == 0) {
+                throw new IOException("No PCM decoded from " + uri);
+            }
+            PcmCacheStore.writeHeader(file, format);
+            return written;
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
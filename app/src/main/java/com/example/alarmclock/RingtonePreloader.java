@@ -0,0 +1,86 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.RingtoneManager;
+import android.net.Uri;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Chuẩn bị ringtone của báo thức sắp kêu ngay khi đặt lịch (hoặc khi người dùng chọn):
+// giải mã một lần vào RingtoneCache để lúc kêu RingingService chỉ cần phát file PCM.
+final class RingtonePreloader {
+    private static final String TAG = "RingtonePreloader";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, TAG));
+    // URI -> còn truy vấn được hay không, theo lần preload gần nhất
+    private static final Map<String, Boolean> AVAILABLE = new ConcurrentHashMap<>();
+    // URI -> phiên bản nguồn ở lần preload gần nhất, để lúc kêu tìm file PCM mà không truy vấn lại.
+    // Được lưu cả vào SharedPreferences vì process thường đã bị hủy khi báo thức kêu.
+    private static final Map<String, Long> VERSIONS = new ConcurrentHashMap<>();
+    private static final String PREFS_VERSIONS = "ringtone_versions";
+
+    private RingtonePreloader() {
+    }
+
+    static void preload(Context context, String ringtone) {
+        if (isDefault(ringtone)) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            Uri uri = Uri.parse(ringtone);
+            long version = RingtoneCache.sourceVersion(appContext, uri);
+            // Chỉ nguồn đã mất mới chuyển sang âm mặc định; giải mã lỗi thì MediaPlayer vẫn phát được URI gốc
+            AVAILABLE.put(ringtone, version >= 0);
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_VERSIONS, Context.MODE_PRIVATE);
+            if (version < 0) {
+                VERSIONS.remove(ringtone);
+                prefs.edit().remove(ringtone).apply();
+                return;
+            }
+            VERSIONS.put(ringtone, version);
+            prefs.edit().putLong(ringtone, version).apply();
+            RingtoneCache.ensure(appContext, uri, version);
+        });
+    }
+
+    // File PCM đã giải mã theo lần preload gần nhất, hoặc null; không truy vấn ContentResolver nên gọi được
+    // trên main thread lúc kêu
+    static File cachedPcm(Context context, String ringtone) {
+        if (isDefault(ringtone)) {
+            return null;
+        }
+        Long version = VERSIONS.get(ringtone);
+        if (version == null) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_VERSIONS, Context.MODE_PRIVATE);
+            if (!prefs.contains(ringtone)) {
+                return null;
+            }
+            version = prefs.getLong(ringtone, 0);
+        }
+        return RingtoneCache.lookup(context, Uri.parse(ringtone), version);
+    }
+
+    // URI sẽ phát: ringtone đã chọn, hoặc âm báo thức mặc định khi chưa chọn hay file đã mất
+    static Uri resolve(String ringtone) {
+        if (!isDefault(ringtone) && !Boolean.FALSE.equals(AVAILABLE.get(ringtone))) {
+            return Uri.parse(ringtone);
+        }
+        return defaultUri();
+    }
+
+    static Uri defaultUri() {
+        Uri uri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+        return uri != null ? uri : RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+    }
+
+    static boolean isDefault(String ringtone) {
+        return ringtone == null || ringtone.equals("default");
+    }
+}
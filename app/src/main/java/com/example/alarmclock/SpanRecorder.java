@@ -0,0 +1,106 @@
+package com.example.alarmclock;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// Ring buffer giữ N timeline gần nhất, mỗi timeline là các span (tên, bắt đầu, kết thúc) của một lần báo thức kêu.
+// Các mảng được cấp phát sẵn một lần; ghi span chỉ là gán phần tử mảng.
+final class SpanRecorder {
+    private final Timeline[] timelines;
+    private final int maxSpans;
+    // Vị trí sẽ ghi timeline kế tiếp và số timeline đã ghi (tối đa timelines.length)
+    private int next;
+    private int size;
+
+    SpanRecorder(int capacity, int maxSpans) {
+        this.timelines = new Timeline[capacity];
+        this.maxSpans = maxSpans;
+        for (int i = 0; i < capacity; i++) {
+            timelines[i] = new Timeline(maxSpans);
+        }
+    }
+
+    // Bắt đầu timeline mới cho alarmId, ghi đè timeline cũ nhất khi đầy
+    synchronized void begin(int alarmId, long wallClockMillis, long originNanos) {
+        Timeline timeline = timelines[next];
+        timeline.alarmId = alarmId;
+        timeline.wallClockMillis = wallClockMillis;
+        timeline.originNanos = originNanos;
+        timeline.count = 0;
+        timeline.dropped = 0;
+        next = (next + 1) % timelines.length;
+        size = Math.min(size + 1, timelines.length);
+    }
+
+    // Thêm span vào timeline gần nhất của alarmId; bỏ qua nếu không có timeline nào cho alarm đó
+    synchronized void span(int alarmId, String name, long startNanos, long endNanos) {
+        Timeline timeline = latest(alarmId);
+        if (timeline == null) {
+            return;
+        }
+        if (timeline.count == maxSpans) {
+            timeline.dropped++;
+            return;
+        }
+        int i = timeline.count++;
+        timeline.names[i] = name;
+        timeline.starts[i] = startNanos;
+        timeline.ends[i] = endNanos;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Các timeline từ cũ đến mới, thời gian tính bằng ms từ lúc bắt đầu timeline
+    synchronized String dump() {
+        StringBuilder sb = new StringBuilder();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        for (int k = 0; k < size; k++) {
+            Timeline timeline = timelines[(next - size + k + timelines.length) % timelines.length];
+            sb.append("alarm ").append(timeline.alarmId).append(" at ")
+                    .append(format.format(new Date(timeline.wallClockMillis))).append('\n');
+            for (int i = 0; i < timeline.count; i++) {
+                sb.append("  ").append(timeline.names[i]).append(": +")
+                        .append(toMillis(timeline.starts[i] - timeline.originNanos)).append("ms, ")
+                        .append(toMillis(timeline.ends[i] - timeline.starts[i])).append("ms\n");
+            }
+            if (timeline.dropped > 0) {
+                sb.append("  (").append(timeline.dropped).append(" spans dropped)\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private Timeline latest(int alarmId) {
+        for (int k = 1; k <= size; k++) {
+            Timeline timeline = timelines[(next - k + timelines.length) % timelines.length];
+            if (timeline.alarmId == alarmId) {
+                return timeline;
+            }
+        }
+        return null;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.US, "%.1f", nanos / 1_000_000.0);
+    }
+
+    private static final class Timeline {
+        int alarmId;
+        long wallClockMillis;
+        long originNanos;
+        int count;
+        int dropped;
+        final String[] names;
+        final long[] starts;
+        final long[] ends;
+
+        Timeline(int maxSpans) {
+            names = new String[maxSpans];
+            starts = new long[maxSpans];
+            ends = new long[maxSpans];
+        }
+    }
+}
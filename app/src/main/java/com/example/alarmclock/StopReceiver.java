@@ -1,13 +1,13 @@
 package com.example.alarmclock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 
-import androidx.core.app.NotificationManagerCompat;
+import java.util.ArrayList;
+import java.util.List;
 
 public class StopReceiver extends BroadcastReceiver {
 
@@ -16,41 +16,22 @@ public class StopReceiver extends BroadcastReceiver {
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        int alarmId = intent.getIntExtra("alarm_id", 0);
-        NotificationManagerCompat.from(context).cancel(alarmId);
-
-        // Hủy báo thức trong AlarmManager
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent cancelIntent = new Intent(context, AlarmReceiver.class);
-        cancelIntent.putExtra("alarm_id", alarmId);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                alarmId,
-                cancelIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        alarmManager.cancel(pendingIntent);
-
-        // Cập nhật trạng thái báo thức
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        Alarm alarm = dbHelper.getAllAlarms().stream()
-                .filter(a -> a.getId() == alarmId)
-                .findFirst()
-                .orElse(null);
-        if (alarm != null) {
-            alarm.setSnoozing(false); // Reset trạng thái snooze
-            if (alarm.getDaysOfWeek().isEmpty()) {
-                alarm.setEnabled(false); // Tắt báo thức một lần
-                alarm.setNextAlarmTime(0);
-            }
-            dbHelper.updateAlarm(alarm);
-            Log.d(TAG, "Stopped alarm: ID=" + alarmId + ", Enabled=" + alarm.isEnabled());
-        }
-
-        // Đóng AlarmActivity nếu đang mở
-        Intent activityIntent = new Intent(context, AlarmActivity.class);
-        activityIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        activityIntent.putExtra("finish", true);
-        context.startActivity(activityIntent);
+        long receivedAt = SystemClock.uptimeMillis();
+        ArrayList<Integer> alarmIds = RingingService.alarmIdsFrom(intent);
+
+        // Dừng phiên đang kêu; AlarmActivity tự đóng khi phiên kết thúc
+        RingingService.stop(context);
+
+        Context appContext = context.getApplicationContext();
+        ReceiverWork.run(this, TAG, receivedAt, () -> {
+            // Cả nhóm báo thức: một transaction và một lần đặt lịch
+            DatabaseHelper dbHelper = DatabaseHelper.getInstance(appContext);
+            // Báo thức lặp lại về SCHEDULED với lần kêu tiếp theo, báo thức một lần về DISMISSED
+            List<Alarm> stopped = dbHelper.transitionAll(dbHelper.getAlarmsByIds(alarmIds),
+                    AlarmState.EVENT_DISMISS, System.currentTimeMillis());
+            // scheduleAll bỏ báo thức đã tắt khỏi hàng đợi
+            AlarmScheduler.getInstance(appContext).scheduleAll(stopped);
+            Log.d(TAG, "Stopped alarms: " + alarmIds);
+        });
     }
 }
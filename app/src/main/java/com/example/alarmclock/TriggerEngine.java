@@ -0,0 +1,207 @@
+package com.example.alarmclock;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+// Tính thời điểm kích hoạt tiếp theo trực tiếp trên epoch millis.
+// Các lần chuyển giờ của múi giờ đang dùng được tính sẵn thành bảng mảng nguyên thủy,
+// nên ở trạng thái ổn định không tạo object nào.
+//
+// Quy ước với giờ địa phương không bình thường:
+// - Khoảng trống (DST bắt đầu, vd 02:30 không tồn tại): kêu muộn hơn đúng bằng độ dài khoảng trống (03:30).
+// - Khoảng chồng (DST kết thúc, vd 01:30 xuất hiện hai lần): chỉ kêu ở lần xuất hiện đầu tiên.
+public final class TriggerEngine {
+    static final long MINUTE_MILLIS = 60 * 1000L;
+    static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // Bảng được dựng cho khoảng [now - 1 ngày, now + 400 ngày]
+    private static final long TABLE_PAST = DAY_MILLIS;
+    private static final long TABLE_FUTURE = 400 * DAY_MILLIS;
+    // Kết quả xa nhất là 8 ngày sau now, bảng phải còn phủ được khoảng này
+    private static final long LOOKAHEAD = 8 * DAY_MILLIS;
+
+    private static volatile TransitionTable table;
+
+    private TriggerEngine() {
+    }
+
+    // Số millis tới đầu phút kế tiếp theo đồng hồ hệ thống, trong khoảng (0, MINUTE_MILLIS].
+    // Độ lệch của mọi múi giờ hiện hành là số phút nguyên nên đầu phút UTC cũng là đầu phút giờ địa phương.
+    static long millisToNextMinute(long now) {
+        return MINUTE_MILLIS - Math.floorMod(now, MINUTE_MILLIS);
+    }
+
+    // Gọi khi múi giờ mặc định thay đổi để bỏ bảng đã cache
+    public static void invalidateZone() {
+        table = null;
+    }
+
+    // now là ảnh chụp thời gian dùng chung khi tính cho cả danh sách
+    public static long nextTrigger(int hour, int minute, int daysMask, long now) {
+        TransitionTable t = table;
+        if (t == null || now < t.coverFrom || now + LOOKAHEAD >= t.coverUntil) {
+            t = buildTable(TimeZone.getDefault().toZoneId(), now);
+            table = t;
+        }
+
+        long localDay = Math.floorDiv(now + t.offsetAt(now), DAY_MILLIS);
+        long timeOfDay = hour * HOUR_MILLIS + minute * MINUTE_MILLIS;
+
+        if (daysMask == Alarm.DaysOfWeek.NONE) {
+            long today = t.toUtc(localDay * DAY_MILLIS + timeOfDay);
+            return today < now ? t.toUtc((localDay + 1) * DAY_MILLIS + timeOfDay) : today;
+        }
+
+        int currentDayOfWeek = dayOfWeek(localDay);
+        for (int i = 0; i < 7; i++) {
+            int nextDay = (currentDayOfWeek + i - 1) % 7 + 1;
+            if (Alarm.DaysOfWeek.contains(daysMask, nextDay)) {
+                long trigger = t.toUtc((localDay + i) * DAY_MILLIS + timeOfDay);
+                if (i > 0 || trigger > now) {
+                    return trigger;
+                }
+            }
+        }
+        // Chỉ có hôm nay và giờ đã qua: kêu lại sau đúng một tuần
+        return t.toUtc((localDay + 7) * DAY_MILLIS + timeOfDay);
+    }
+
+    // Tính lại thời điểm kích hoạt cho cả danh sách với cùng một mốc now (dùng khi đổi múi giờ)
+    public static void recomputeAll(List<Alarm> alarms, long now) {
+        for (Alarm alarm : alarms) {
+            if (alarm.isSnoozing()) {
+                continue; // next_alarm_time đang giữ thời điểm snooze (thời gian tuyệt đối)
+            }
+            alarm.setNextAlarmTime(alarm.isEnabled() ? alarm.calculateNextAlarmTime(now) : 0);
+        }
+    }
+
+    // Số lần kích hoạt bị lỡ trong [firstMissed, now], với firstMissed là next_alarm_time đã lưu.
+    // Đếm theo ngày địa phương với offset hiện tại, đủ chính xác để báo cho người dùng.
+    public static int countMissed(int hour, int minute, int daysMask, long firstMissed, long now) {
+        if (firstMissed <= 0 || firstMissed > now) {
+            return 0;
+        }
+        if (daysMask == Alarm.DaysOfWeek.NONE) {
+            return 1;
+        }
+        long offset = TimeZone.getDefault().getOffset(now);
+        long firstDay = Math.floorDiv(firstMissed + offset, DAY_MILLIS);
+        long nowLocal = now + offset;
+        long nowDay = Math.floorDiv(nowLocal, DAY_MILLIS);
+        long timeOfDay = hour * HOUR_MILLIS + minute * MINUTE_MILLIS;
+        long lastDay = nowLocal - nowDay * DAY_MILLIS >= timeOfDay ? nowDay : nowDay - 1;
+        if (lastDay <= firstDay) {
+            return 1;
+        }
+
+        long weeks = (lastDay - firstDay) / 7;
+        long count = 1 + weeks * Integer.bitCount(daysMask & Alarm.DaysOfWeek.ALL);
+        for (long day = firstDay + 1 + weeks * 7; day <= lastDay; day++) {
+            if (Alarm.DaysOfWeek.contains(daysMask, dayOfWeek(day))) {
+                count++;
+            }
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    // 1970-01-01 là thứ năm (Calendar.THURSDAY = 5)
+    static int dayOfWeek(long localEpochDay) {
+        return (int) Math.floorMod(localEpochDay + 4, 7L) + 1;
+    }
+
+    static TransitionTable buildTable(ZoneId zone, long now) {
+        ZoneRules rules = zone.getRules();
+        long from = now - TABLE_PAST;
+        long until = now + TABLE_FUTURE;
+
+        List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        ZoneOffsetTransition next = rules.nextTransition(Instant.ofEpochMilli(from));
+        while (next != null && next.getInstant().toEpochMilli() < until) {
+            transitions.add(next);
+            next = rules.nextTransition(next.getInstant());
+        }
+
+        int size = transitions.size();
+        long[] instants = new long[size];
+        long[] offsetsAfter = new long[size];
+        long[] localStarts = new long[size];
+        for (int i = 0; i < size; i++) {
+            ZoneOffsetTransition transition = transitions.get(i);
+            long before = transition.getOffsetBefore().getTotalSeconds() * 1000L;
+            long after = transition.getOffsetAfter().getTotalSeconds() * 1000L;
+            instants[i] = transition.getInstant().toEpochMilli();
+            offsetsAfter[i] = after;
+            localStarts[i] = instants[i] + Math.min(before, after);
+        }
+        long initialOffset = rules.getOffset(Instant.ofEpochMilli(from)).getTotalSeconds() * 1000L;
+        return new TransitionTable(from, until, initialOffset, instants, offsetsAfter, localStarts);
+    }
+
+    // Bảng các lần chuyển giờ trong [coverFrom, coverUntil), tra cứu bằng tìm kiếm nhị phân
+    static final class TransitionTable {
+        final long coverFrom;
+        final long coverUntil;
+        private final long initialOffset;
+        private final long[] instants;
+        private final long[] offsetsAfter;
+        // Giờ địa phương nơi vùng trống/chồng của mỗi lần chuyển bắt đầu
+        private final long[] localStarts;
+
+        TransitionTable(long coverFrom, long coverUntil, long initialOffset,
+                        long[] instants, long[] offsetsAfter, long[] localStarts) {
+            this.coverFrom = coverFrom;
+            this.coverUntil = coverUntil;
+            this.initialOffset = initialOffset;
+            this.instants = instants;
+            this.offsetsAfter = offsetsAfter;
+            this.localStarts = localStarts;
+        }
+
+        long offsetAt(long utc) {
+            int i = lastAtOrBefore(instants, utc);
+            return i < 0 ? initialOffset : offsetsAfter[i];
+        }
+
+        private long offsetBefore(int i) {
+            return i == 0 ? initialOffset : offsetsAfter[i - 1];
+        }
+
+        // Đổi giờ địa phương sang UTC theo quy ước khoảng trống/chồng ở đầu lớp
+        long toUtc(long local) {
+            int i = lastAtOrBefore(localStarts, local);
+            if (i < 0) {
+                return local - initialOffset;
+            }
+            long before = offsetBefore(i);
+            long after = offsetsAfter[i];
+            long localEnd = instants[i] + Math.max(before, after);
+            if (local < localEnd) {
+                // Trong khoảng trống: dời muộn hơn độ dài khoảng trống.
+                // Trong khoảng chồng: lấy lần xuất hiện đầu tiên (offset cũ).
+                return local - before;
+            }
+            return local - after;
+        }
+
+        private static int lastAtOrBefore(long[] values, long key) {
+            int low = 0;
+            int high = values.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
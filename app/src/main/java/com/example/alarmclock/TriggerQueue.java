@@ -0,0 +1,103 @@
+package com.example.alarmclock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Min-heap các lần kích hoạt sắp tới của AlarmScheduler, theo (thời điểm, id). Không phụ thuộc Android;
+// AlarmScheduler giữ phần đọc DB và đăng ký đầu heap với AlarmManager.
+final class TriggerQueue {
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    // Đặt (hoặc thay) lần kích hoạt của báo thức theo next_alarm_time
+    void put(Alarm alarm, long now, int type) {
+        remove(alarm.getId());
+        // Báo thức một lần đang kêu không còn lần kích hoạt nào (next_alarm_time = 0)
+        if (!alarm.isEnabled() || alarm.getState() == AlarmState.RINGING && alarm.getNextAlarmTime() <= 0) {
+            return;
+        }
+        // Báo thức đang snooze giữ nguyên thời điểm snooze đã lưu
+        if (!alarm.isSnoozing() && alarm.getNextAlarmTime() <= now) {
+            alarm.setNextAlarmTime(alarm.calculateNextAlarmTime(now));
+        }
+        add(alarm, type);
+    }
+
+    // Dựng lại từ DB khi process mới khởi động. Lần kích hoạt đã qua của báo thức SCHEDULED/SNOOZED được giữ
+    // nguyên và đứng đầu heap: process thường bị hủy khi báo thức kêu, nên báo thức cùng phút với báo thức
+    // vừa đánh thức process (hoặc bị Doze giao trễ) vẫn được gộp vào phiên đang kêu hoặc kêu ngay.
+    // Báo thức đang kêu chỉ còn lần kế tiếp của báo thức lặp lại.
+    void restore(Alarm alarm, long now, int type) {
+        int state = alarm.getState();
+        long due = alarm.getNextAlarmTime();
+        boolean pending = state == AlarmState.SCHEDULED || state == AlarmState.SNOOZED;
+        if (pending ? due > 0 : state == AlarmState.RINGING && due > now) {
+            remove(alarm.getId());
+            add(alarm, type);
+        }
+    }
+
+    boolean remove(int alarmId) {
+        Entry entry = entries.remove(alarmId);
+        if (entry == null) {
+            return false;
+        }
+        queue.remove(entry);
+        return true;
+    }
+
+    // Bỏ báo thức vừa kêu rồi lấy ra các báo thức đến hạn trước khi hết phút của now để gộp vào cùng phiên
+    List<Entry> onAlarmFired(int alarmId, long now) {
+        remove(alarmId);
+        long minuteEnd = (now / TriggerEngine.MINUTE_MILLIS + 1) * TriggerEngine.MINUTE_MILLIS;
+        List<Entry> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().triggerAt < minuteEnd) {
+            Entry entry = queue.poll();
+            entries.remove(entry.alarmId);
+            due.add(entry);
+        }
+        return due;
+    }
+
+    Entry peek() {
+        return queue.peek();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    private void add(Alarm alarm, int type) {
+        Entry entry = new Entry(alarm.getId(), alarm.getNextAlarmTime(), alarm.isSnoozing(), type,
+                alarm.getRingtone(), AlarmCodec.encode(alarm));
+        entries.put(entry.alarmId, entry);
+        queue.add(entry);
+    }
+
+    static final class Entry implements Comparable<Entry> {
+        final int alarmId;
+        final long triggerAt;
+        final boolean snooze;
+        final int type;
+        final String ringtone;
+        final byte[] payload;
+
+        Entry(int alarmId, long triggerAt, boolean snooze, int type, String ringtone, byte[] payload) {
+            this.alarmId = alarmId;
+            this.triggerAt = triggerAt;
+            this.snooze = snooze;
+            this.type = type;
+            this.ringtone = ringtone;
+            this.payload = payload;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(triggerAt, other.triggerAt);
+            return byTime != 0 ? byTime : Integer.compare(alarmId, other.alarmId);
+        }
+    }
+}
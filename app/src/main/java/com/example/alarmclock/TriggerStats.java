@@ -0,0 +1,103 @@
+package com.example.alarmclock;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Độ trễ giữa thời điểm đã đặt và lúc AlarmReceiver thực sự nhận broadcast, tách theo loại báo thức.
+// Mỗi loại là một LatenessHistogram lưu trong SharedPreferences dưới dạng một chuỗi ngắn.
+public final class TriggerStats {
+    private static final String TAG = "TriggerStats";
+    private static final String PREFS_NAME = "trigger_stats";
+
+    public static final int TYPE_NORMAL = 0;
+    public static final int TYPE_SNOOZE = 1;
+    public static final int TYPE_AUTO_SNOOZE = 2;
+    private static final String[] TYPE_NAMES = {"normal", "snooze", "auto_snooze"};
+
+    public static final String EXTRA_SCHEDULED_AT = "scheduled_at";
+    public static final String EXTRA_ALARM_TYPE = "alarm_type";
+
+    private static TriggerStats instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final LatenessHistogram[] histograms = new LatenessHistogram[TYPE_NAMES.length];
+
+    public static synchronized TriggerStats getInstance(Context context) {
+        if (instance == null) {
+            instance = new TriggerStats(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TriggerStats(Context context) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (int type = 0; type < histograms.length; type++) {
+            histograms[type] = LatenessHistogram.decode(prefs.getString(TYPE_NAMES[type], null));
+        }
+    }
+
+    public synchronized void record(int type, long latenessMillis) {
+        if (type < 0 || type >= histograms.length) {
+            type = TYPE_NORMAL;
+        }
+        histograms[type].record(latenessMillis);
+        // apply() ghi đĩa bất đồng bộ, chỉ một chuỗi vài chục ký tự
+        prefs.edit().putString(TYPE_NAMES[type], histograms[type].encode()).apply();
+        Log.d(TAG, "Recorded " + TYPE_NAMES[type] + " lateness " + latenessMillis + "ms");
+    }
+
+    public synchronized void reset() {
+        for (LatenessHistogram histogram : histograms) {
+            histogram.clear();
+        }
+        prefs.edit().clear().apply();
+    }
+
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Device: ").append(Build.MANUFACTURER).append(' ').append(Build.MODEL).append('\n');
+        sb.append("Android: ").append(Build.VERSION.RELEASE).append(" (API ").append(Build.VERSION.SDK_INT).append(")\n");
+
+        for (int type = 0; type < histograms.length; type++) {
+            LatenessHistogram histogram = histograms[type];
+            sb.append('\n').append(TYPE_NAMES[type]).append(": n=").append(histogram.count())
+                    .append(", p50 ").append(LatenessHistogram.formatBound(histogram.percentile(50)))
+                    .append(", p95 ").append(LatenessHistogram.formatBound(histogram.percentile(95)))
+                    .append(", p99 ").append(LatenessHistogram.formatBound(histogram.percentile(99)))
+                    .append('\n');
+            for (int bucket = 0; bucket < histogram.bucketCount(); bucket++) {
+                long count = histogram.countAt(bucket);
+                if (count == 0) {
+                    continue;
+                }
+                String bound = bucket < LatenessHistogram.BOUNDS.length
+                        ? LatenessHistogram.formatBound(LatenessHistogram.BOUNDS[bucket])
+                        : LatenessHistogram.formatBound(Long.MAX_VALUE);
+                sb.append("  ").append(bound).append(": ").append(count).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    // Ghi báo cáo ra file trong thư mục riêng của app để lấy bằng adb hoặc trình quản lý file
+    public File export(String report) throws IOException {
+        File dir = context.getExternalFilesDir(null);
+        if (dir == null) {
+            dir = context.getFilesDir();
+        }
+        File file = new File(dir, "trigger_stats_" + System.currentTimeMillis() + ".txt");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(report.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
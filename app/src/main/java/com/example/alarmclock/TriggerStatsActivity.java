@@ -0,0 +1,56 @@
+package com.example.alarmclock;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.IOException;
+
+// Màn hình debug: p50/p95/p99 độ trễ kích hoạt theo loại báo thức và các timeline kêu gần nhất, xuất ra file text
+public class TriggerStatsActivity extends AppCompatActivity {
+    private static final String TAG = "TriggerStatsActivity";
+
+    private TriggerStats stats;
+    private TextView statsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_trigger_stats);
+
+        stats = TriggerStats.getInstance(this);
+        statsText = findViewById(R.id.text_stats);
+        Button exportButton = findViewById(R.id.button_export);
+        Button resetButton = findViewById(R.id.button_reset);
+
+        exportButton.setOnClickListener(v -> {
+            try {
+                File file = stats.export(buildReport());
+                Toast.makeText(this, "Exported to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export trigger stats", e);
+                Toast.makeText(this, "Export failed", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        resetButton.setOnClickListener(v -> {
+            stats.reset();
+            statsText.setText(buildReport());
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        statsText.setText(buildReport());
+    }
+
+    private String buildReport() {
+        return stats.report() + "\nRecent fire timelines:\n" + FireTrace.dump();
+    }
+}
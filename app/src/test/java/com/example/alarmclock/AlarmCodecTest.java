@@ -0,0 +1,58 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AlarmCodecTest {
+    @Test
+    public void roundTripKeepsAllFields() {
+        Alarm alarm = new Alarm(42, 23, 59, Arrays.asList(1, 4, 7), true, true, "Dậy đi làm", false, 15);
+        alarm.setSnoozing(true);
+        alarm.setRingtone("content://media/internal/audio/media/12");
+        alarm.setNextAlarmTime(1_762_065_000_000L);
+
+        Alarm decoded = AlarmCodec.decode(AlarmCodec.encode(alarm));
+
+        assertNotNull(decoded);
+        assertEquals(42, decoded.getId());
+        assertEquals(23, decoded.getHour());
+        assertEquals(59, decoded.getMinute());
+        assertEquals(alarm.getDaysMask(), decoded.getDaysMask());
+        assertTrue(decoded.isSnooze());
+        assertTrue(decoded.isEnabled());
+        assertEquals("Dậy đi làm", decoded.getLabel());
+        assertFalse(decoded.isVibrationEnabled());
+        assertEquals(15, decoded.getSnoozeDuration());
+        assertTrue(decoded.isSnoozing());
+        assertEquals(alarm.getRingtone(), decoded.getRingtone());
+        assertEquals(alarm.getNextAlarmTime(), decoded.getNextAlarmTime());
+    }
+
+    @Test
+    public void roundTripKeepsLabelLongerThan64KiB() {
+        char[] chars = new char[40_000];
+        Arrays.fill(chars, 'đ');
+        String label = new String(chars);
+        Alarm alarm = new Alarm(7, 6, 30, null, false, true, label, true, 5);
+        alarm.setRingtone("content://media/internal/audio/media/3");
+
+        Alarm decoded = AlarmCodec.decode(AlarmCodec.encode(alarm));
+
+        assertNotNull(decoded);
+        assertEquals(label, decoded.getLabel());
+        assertEquals(alarm.getRingtone(), decoded.getRingtone());
+    }
+
+    @Test
+    public void rejectsUnknownVersionAndTruncatedData() {
+        byte[] data = AlarmCodec.encode(new Alarm(1, 7, 0, null, false, true));
+
+        assertNull(AlarmCodec.decode(null));
+        assertNull(AlarmCodec.decode(Arrays.copyOf(data, data.length - 3)));
+        data[0] = (byte) (AlarmCodec.VERSION + 1);
+        assertNull(AlarmCodec.decode(data));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.alarmclock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class AlarmFormatterTest {
+    private Locale originalLocale;
+
+    @Before
+    public void setUp() {
+        originalLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(originalLocale);
+    }
+
+    @Test
+    public void timeTablesMatchStringFormat() {
+        for (int hour = 0; hour < 24; hour++) {
+            for (int minute = 0; minute < 60; minute++) {
+                int displayHour = hour == 0 ? 12 : (hour > 12 ? hour - 12 : hour);
+                assertEquals(String.format("%02d:%02d", hour, minute), AlarmFormatter.time24(hour, minute));
+                assertEquals(String.format("%d:%02d", displayHour, minute), AlarmFormatter.time12(hour, minute));
+                assertSame(AlarmFormatter.time12(hour, minute), AlarmFormatter.time12(hour, minute));
+            }
+        }
+        assertEquals("AM", AlarmFormatter.amPm(0));
+        assertEquals("PM", AlarmFormatter.amPm(12));
+    }
+
+    @Test
+    public void dayLabels() {
+        assertEquals("Once", AlarmFormatter.days(Alarm.DaysOfWeek.NONE));
+        assertEquals("Daily", AlarmFormatter.days(Alarm.DaysOfWeek.ALL));
+        assertEquals("Weekdays", AlarmFormatter.days(Alarm.DaysOfWeek.WEEKDAYS));
+        assertEquals("Sun, Wed, Sat", AlarmFormatter.days(
+                Alarm.DaysOfWeek.bit(1) | Alarm.DaysOfWeek.bit(4) | Alarm.DaysOfWeek.bit(7)));
+    }
+
+    @Test
+    public void countdownMatchesOldFormat() {
+        char[] buffer = new char[AlarmFormatter.COUNTDOWN_CAPACITY];
+        long[] diffs = {-5, 0, 59_999, 60_000, 3_599_999, 3_600_000, 86_399_999, 86_400_000,
+                7 * TriggerEngine.DAY_MILLIS + 5 * TriggerEngine.HOUR_MILLIS + 3 * TriggerEngine.MINUTE_MILLIS};
+        for (long diff : diffs) {
+            assertEquals(oldCountdown(diff), new String(buffer, 0, AlarmFormatter.countdown(diff, buffer)));
+        }
+    }
+
+    @Test
+    public void textStaysEnglishWhenLocaleChanges() {
+        assertEquals("Mon, Tue", AlarmFormatter.days(Alarm.DaysOfWeek.bit(2) | Alarm.DaysOfWeek.bit(3)));
+        Locale.setDefault(Locale.FRANCE);
+        assertEquals("Mon, Tue", AlarmFormatter.days(Alarm.DaysOfWeek.bit(2) | Alarm.DaysOfWeek.bit(3)));
+        assertEquals("Once", AlarmFormatter.days(Alarm.DaysOfWeek.NONE));
+        assertEquals("PM", AlarmFormatter.amPm(13));
+        assertEquals("Snoozing for 5 min", AlarmFormatter.snoozingFor(5));
+        char[] buffer = new char[AlarmFormatter.COUNTDOWN_CAPACITY];
+        assertEquals("Rings in 1h 5m", new String(buffer, 0, AlarmFormatter.countdown(
+                TriggerEngine.HOUR_MILLIS + 5 * TriggerEngine.MINUTE_MILLIS, buffer)));
+    }
+
+    // Alarm.getTimeUntilNext() trước khi có AlarmFormatter
+    private static String oldCountdown(long timeDiff) {
+        if (timeDiff <= 0) {
+            return "Now";
+        }
+        long days = timeDiff / (1000 * 60 * 60 * 24);
+        long hours = (timeDiff % (1000 * 60 * 60 * 24)) / (1000 * 60 * 60);
+        long minutes = (timeDiff % (1000 * 60 * 60)) / (1000 * 60);
+        if (days > 0) {
+            return String.format("Rings in %dd %dh %dm", days, hours, minutes);
+        } else if (hours > 0) {
+            return String.format("Rings in %dh %dm", hours, minutes);
+        } else {
+            return String.format("Rings in %dm", minutes);
+        }
+    }
+}
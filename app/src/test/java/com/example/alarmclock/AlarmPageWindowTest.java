@@ -0,0 +1,155 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlarmPageWindowTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_PAGES = 4;
+    private static final int VIEWPORT = 8;
+
+    @Test
+    public void scrollingThroughTableKeepsWindowBounded() {
+        List<Alarm> table = createTable(10_000);
+        AlarmPageWindow window = new AlarmPageWindow(PAGE_SIZE, MAX_PAGES);
+        window.reset(after(table, 0, PAGE_SIZE), false, true);
+
+        // Cuộn xuống từng dòng, giữ dòng đầu màn hình theo id như RecyclerView giữ vị trí khi trang đầu bị bỏ
+        int topId = window.firstId();
+        while (true) {
+            int top = loadAround(window, table, topId);
+            assertTrue(window.size() <= PAGE_SIZE * MAX_PAGES);
+            assertAscending(window.snapshot());
+            assertEquals(window.size(), window.lastId() - window.firstId() + 1);
+            if (top + VIEWPORT >= window.size() && !window.hasAfter()) {
+                break;
+            }
+            topId = window.snapshot().get(top + 1).getId();
+        }
+        assertEquals(table.get(table.size() - 1).getId(), window.lastId());
+        assertTrue(window.hasBefore());
+
+        // Rồi cuộn ngược lên đầu bảng
+        while (true) {
+            int top = loadAround(window, table, topId);
+            assertTrue(window.size() <= PAGE_SIZE * MAX_PAGES);
+            assertAscending(window.snapshot());
+            if (top == 0 && !window.hasBefore()) {
+                break;
+            }
+            topId = window.snapshot().get(top - 1).getId();
+        }
+        assertEquals(table.get(0).getId(), window.firstId());
+        assertTrue(window.hasAfter());
+    }
+
+    @Test
+    public void shortTableFitsInOnePage() {
+        List<Alarm> table = createTable(5);
+        AlarmPageWindow window = new AlarmPageWindow(PAGE_SIZE, MAX_PAGES);
+        List<Alarm> rows = after(table, 0, window.reloadLimit());
+        window.reset(rows, false, rows.size() >= window.reloadLimit());
+        assertEquals(5, window.size());
+        assertFalse(window.hasAfter());
+        assertFalse(window.shouldLoadAfter(4));
+        assertFalse(window.shouldLoadBefore(0));
+    }
+
+    @Test
+    public void editsStayInsideWindow() {
+        List<Alarm> table = createTable(3 * PAGE_SIZE);
+        AlarmPageWindow window = new AlarmPageWindow(PAGE_SIZE, MAX_PAGES);
+        window.reset(after(table, 0, PAGE_SIZE), false, true);
+
+        // Cuối bảng chưa nằm trong cửa sổ
+        assertFalse(window.add(alarm(1_000)));
+
+        window.append(after(table, window.lastId(), PAGE_SIZE));
+        window.append(after(table, window.lastId(), PAGE_SIZE));
+        window.append(after(table, window.lastId(), PAGE_SIZE));
+        assertFalse(window.hasAfter());
+        assertTrue(window.add(alarm(1_000)));
+        assertEquals(3 * PAGE_SIZE + 1, window.size());
+        assertEquals(1_000, window.lastId());
+
+        Alarm edited = alarm(5);
+        edited.setLabel("Edited");
+        assertTrue(window.replace(edited));
+        assertSame(edited, window.snapshot().get(4));
+
+        // Xóa hết một trang thì trang đó bị bỏ, các dòng còn lại vẫn đúng thứ tự
+        for (int id = 1; id <= PAGE_SIZE; id++) {
+            assertTrue(window.remove(id));
+        }
+        assertFalse(window.remove(1));
+        assertEquals(2 * PAGE_SIZE + 1, window.size());
+        assertEquals(PAGE_SIZE + 1, window.firstId());
+        assertAscending(window.snapshot());
+    }
+
+    @Test
+    public void reloadLimitCoversCurrentWindow() {
+        AlarmPageWindow window = new AlarmPageWindow(PAGE_SIZE, MAX_PAGES);
+        assertEquals(PAGE_SIZE, window.reloadLimit());
+        window.reset(createTable(3 * PAGE_SIZE + 7), false, true);
+        assertEquals(3 * PAGE_SIZE + 7, window.reloadLimit());
+    }
+
+    // Nạp trang như AlarmFragment.loadMoreIfNeeded cho tới khi màn hình (bắt đầu ở topId) không cần thêm;
+    // trả về vị trí của topId trong cửa sổ
+    private static int loadAround(AlarmPageWindow window, List<Alarm> table, int topId) {
+        while (true) {
+            int top = indexOf(window.snapshot(), topId);
+            int last = Math.min(top + VIEWPORT, window.size()) - 1;
+            if (window.shouldLoadAfter(last)) {
+                window.append(after(table, window.lastId(), PAGE_SIZE));
+            } else if (window.shouldLoadBefore(top)) {
+                window.prepend(before(table, window.firstId(), PAGE_SIZE));
+            } else {
+                return top;
+            }
+        }
+    }
+
+    private static void assertAscending(List<Alarm> alarms) {
+        for (int i = 1; i < alarms.size(); i++) {
+            assertTrue(alarms.get(i - 1).getId() < alarms.get(i).getId());
+        }
+    }
+
+    private static int indexOf(List<Alarm> alarms, int id) {
+        for (int i = 0; i < alarms.size(); i++) {
+            if (alarms.get(i).getId() == id) {
+                return i;
+            }
+        }
+        throw new AssertionError("Alarm " + id + " is outside the window");
+    }
+
+    // Giống DatabaseHelper.getAlarmsAfter / getAlarmsBefore trên bảng có id 1..n
+    private static List<Alarm> after(List<Alarm> table, int afterId, int limit) {
+        int from = Math.min(afterId, table.size());
+        return new ArrayList<>(table.subList(from, Math.min(from + limit, table.size())));
+    }
+
+    private static List<Alarm> before(List<Alarm> table, int beforeId, int limit) {
+        int to = Math.min(beforeId - 1, table.size());
+        return new ArrayList<>(table.subList(Math.max(0, to - limit), to));
+    }
+
+    private static List<Alarm> createTable(int count) {
+        List<Alarm> table = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            table.add(alarm(id));
+        }
+        return table;
+    }
+
+    private static Alarm alarm(int id) {
+        return new Alarm(id, id % 24, id % 60, null, true, true);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AlarmRowBinderTest {
+    private static final long NOW = 1_762_065_000_000L;
+    private static final AlarmPalette PALETTE = new AlarmPalette(1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+    @Test
+    public void fullBindTouchesEveryView() {
+        CountingRow row = bind(enabledAlarm(), AlarmRowBinder.FULL);
+        assertEquals(9, row.total());
+        assertEquals(1, row.countdown);
+        assertTrue(row.countdownLength > 0);
+        assertEquals(7, row.iconColor);
+    }
+
+    @Test
+    public void countdownTickOnlyUpdatesCountdown() {
+        CountingRow row = bind(enabledAlarm(), AlarmRowBinder.COUNTDOWN_TICK);
+        assertEquals(1, row.total());
+        assertEquals(1, row.countdown);
+    }
+
+    @Test
+    public void snoozeChangeOnlyUpdatesSnoozeRow() {
+        Alarm alarm = enabledAlarm();
+        alarm.setSnoozing(true);
+        CountingRow row = bind(alarm, AlarmRowBinder.SNOOZE_CHANGED);
+        assertEquals(1, row.total());
+        assertEquals(1, row.snooze);
+        assertNotNull(row.snoozeText);
+    }
+
+    @Test
+    public void enabledChangeUpdatesStyleAndCountdown() {
+        Alarm alarm = enabledAlarm();
+        alarm.setEnabled(false);
+        CountingRow row = bind(alarm, AlarmRowBinder.ENABLED_CHANGED);
+        // Switch, màu chữ, thẻ, chỉ báo và đếm ngược; không đụng tới giờ, ngày, nhãn, snooze
+        assertEquals(5, row.total());
+        assertEquals(0, row.text);
+        assertEquals(0, row.snooze);
+        assertEquals(0, row.countdownLength);
+        assertEquals(8, row.iconColor);
+        assertEquals(0.7f, row.alpha, 0f);
+    }
+
+    @Test
+    public void disablingSnoozedAlarmHidesSnoozeRow() {
+        Alarm before = enabledAlarm();
+        before.setSnoozing(true);
+        before.setNextAlarmTime(NOW + 5 * TriggerEngine.MINUTE_MILLIS);
+        // Như AlarmAdapter: bản chụp trước khi DatabaseHelper.transition sửa alarm tại chỗ
+        Alarm alarm = new Alarm(before.getId(), before.getHour(), before.getMinute(), null, false, false);
+        alarm.copyFrom(before);
+        assertTrue(AlarmState.accepts(alarm.getState(), AlarmState.EVENT_DISABLE));
+        alarm.setState(AlarmState.target(AlarmState.EVENT_DISABLE, false));
+        alarm.setNextAlarmTime(AlarmState.nextAlarmTime(alarm, AlarmState.EVENT_DISABLE, NOW));
+
+        int changes = AlarmRowBinder.changes(before, alarm);
+        assertEquals(AlarmRowBinder.ENABLED_CHANGED | AlarmRowBinder.SNOOZE_CHANGED,
+                changes & (AlarmRowBinder.ENABLED_CHANGED | AlarmRowBinder.SNOOZE_CHANGED));
+        CountingRow row = bind(alarm, changes);
+        assertEquals(1, row.snooze);
+        assertNull(row.snoozeText);
+        assertEquals(0, row.countdownLength);
+    }
+
+    @Test
+    public void pastDueTriggerIsOnlyReplacedForDisplay() {
+        // Vừa tới hạn (broadcast có thể đang bị hoãn): vẫn hiện "Now", next_alarm_time không đổi
+        Alarm late = enabledAlarm();
+        late.setNextAlarmTime(NOW - TriggerEngine.MINUTE_MILLIS);
+        assertEquals(NOW - TriggerEngine.MINUTE_MILLIS, AlarmRowBinder.displayedTrigger(late, NOW));
+
+        // Báo thức lặp lại quá hạn lâu: đếm ngược tới lần kế tiếp nhưng không ghi vào Alarm
+        Alarm stale = new Alarm(1, 7, 30, Arrays.asList(2, 3, 4, 5, 6), true, true, "Work", false, 5);
+        long storedTime = NOW - 2 * TriggerEngine.HOUR_MILLIS;
+        stale.setNextAlarmTime(storedTime);
+        assertEquals(stale.calculateNextAlarmTime(NOW), AlarmRowBinder.displayedTrigger(stale, NOW));
+        assertEquals(storedTime, stale.getNextAlarmTime());
+
+        // Snooze đang chờ giữ thời điểm đã lưu
+        stale.setSnoozing(true);
+        assertEquals(storedTime, AlarmRowBinder.displayedTrigger(stale, NOW));
+    }
+
+    @Test
+    public void changesClassifiesDifferences() {
+        Alarm old = enabledAlarm();
+        Alarm same = enabledAlarm();
+        same.setRingtone("content://other");
+        assertEquals(0, AlarmRowBinder.changes(old, same));
+
+        Alarm moved = enabledAlarm();
+        moved.setNextAlarmTime(old.getNextAlarmTime() + TriggerEngine.MINUTE_MILLIS);
+        assertEquals(AlarmRowBinder.COUNTDOWN_TICK, AlarmRowBinder.changes(old, moved));
+
+        Alarm snoozed = enabledAlarm();
+        snoozed.setSnoozing(true);
+        assertEquals(AlarmRowBinder.SNOOZE_CHANGED, AlarmRowBinder.changes(old, snoozed));
+
+        Alarm disabled = enabledAlarm();
+        disabled.setEnabled(false);
+        disabled.setNextAlarmTime(0);
+        assertEquals(AlarmRowBinder.ENABLED_CHANGED | AlarmRowBinder.COUNTDOWN_TICK,
+                AlarmRowBinder.changes(old, disabled));
+
+        Alarm edited = enabledAlarm();
+        edited.setLabel("Gym");
+        assertEquals(AlarmRowBinder.TEXT_CHANGED, AlarmRowBinder.changes(old, edited));
+    }
+
+    private static Alarm enabledAlarm() {
+        Alarm alarm = new Alarm(1, 7, 30, null, true, true, "Work", false, 5);
+        alarm.setNextAlarmTime(alarm.calculateNextAlarmTime(NOW));
+        return alarm;
+    }
+
+    private static CountingRow bind(Alarm alarm, int changes) {
+        CountingRow row = new CountingRow();
+        AlarmRowBinder.bind(row, alarm, changes, NOW, new char[AlarmFormatter.COUNTDOWN_CAPACITY], PALETTE);
+        return row;
+    }
+
+    private static final class CountingRow implements AlarmRowBinder.Row {
+        int text;
+        int countdown;
+        int snooze;
+        int style;
+        int countdownLength = -1;
+        String snoozeText;
+        int iconColor;
+        float alpha;
+
+        int total() {
+            return text + countdown + snooze + style;
+        }
+
+        @Override
+        public void setTime(String time, String amPm) {
+            text++;
+        }
+
+        @Override
+        public void setDays(String days) {
+            text++;
+        }
+
+        @Override
+        public void setLabel(String label) {
+            text++;
+        }
+
+        @Override
+        public void setCountdown(char[] buffer, int length) {
+            countdown++;
+            countdownLength = length;
+        }
+
+        @Override
+        public void setSnooze(String text) {
+            snooze++;
+            snoozeText = text;
+        }
+
+        @Override
+        public void setChecked(boolean checked) {
+            style++;
+        }
+
+        @Override
+        public void setTextColors(int timeColor, int secondaryColor) {
+            style++;
+        }
+
+        @Override
+        public void setCardStyle(int backgroundColor, float alpha) {
+            style++;
+            this.alpha = alpha;
+        }
+
+        @Override
+        public void setStatus(boolean active, int iconColor) {
+            style++;
+            this.iconColor = iconColor;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AlarmStateTest {
+    private static final long NOW = 1_762_065_000_000L;
+
+    @Test
+    public void ringPathAcceptsEachEventOnce() {
+        int state = AlarmState.SCHEDULED;
+        assertTrue(AlarmState.accepts(state, AlarmState.EVENT_FIRE));
+        state = AlarmState.target(AlarmState.EVENT_FIRE, false);
+        assertEquals(AlarmState.RINGING, state);
+        // Broadcast lặp lại cho báo thức đang kêu
+        assertFalse(AlarmState.accepts(state, AlarmState.EVENT_FIRE));
+
+        assertTrue(AlarmState.accepts(state, AlarmState.EVENT_AUTO_SNOOZE));
+        state = AlarmState.target(AlarmState.EVENT_AUTO_SNOOZE, false);
+        assertEquals(AlarmState.SNOOZED, state);
+        // Snooze/Stop đến sau auto-snooze
+        assertFalse(AlarmState.accepts(state, AlarmState.EVENT_SNOOZE));
+        assertFalse(AlarmState.accepts(state, AlarmState.EVENT_AUTO_SNOOZE));
+
+        assertTrue(AlarmState.accepts(state, AlarmState.EVENT_FIRE));
+        assertTrue(AlarmState.accepts(AlarmState.RINGING, AlarmState.EVENT_DISMISS));
+        assertFalse(AlarmState.accepts(AlarmState.DISMISSED, AlarmState.EVENT_DISMISS));
+    }
+
+    @Test
+    public void userEventsDoNotInterruptRinging() {
+        assertFalse(AlarmState.accepts(AlarmState.RINGING, AlarmState.EVENT_SCHEDULE));
+        assertTrue(AlarmState.accepts(AlarmState.RINGING, AlarmState.EVENT_DISABLE));
+        assertFalse(AlarmState.accepts(AlarmState.IDLE, AlarmState.EVENT_DISABLE));
+        assertFalse(AlarmState.accepts(AlarmState.IDLE, AlarmState.EVENT_FIRE));
+        assertTrue(AlarmState.accepts(AlarmState.DISMISSED, AlarmState.EVENT_SCHEDULE));
+    }
+
+    @Test
+    public void dismissDependsOnRepeating() {
+        assertEquals(AlarmState.SCHEDULED, AlarmState.target(AlarmState.EVENT_DISMISS, true));
+        assertEquals(AlarmState.DISMISSED, AlarmState.target(AlarmState.EVENT_DISMISS, false));
+
+        Alarm once = new Alarm(1, 7, 0, null, true, true);
+        Alarm daily = new Alarm(2, 7, 0, Arrays.asList(1, 2, 3, 4, 5, 6, 7), true, true);
+        assertEquals(0, AlarmState.nextAlarmTime(once, AlarmState.EVENT_DISMISS, NOW));
+        assertEquals(0, AlarmState.nextAlarmTime(once, AlarmState.EVENT_FIRE, NOW));
+        assertEquals(daily.calculateNextAlarmTime(NOW), AlarmState.nextAlarmTime(daily, AlarmState.EVENT_FIRE, NOW));
+        assertEquals(0, AlarmState.nextAlarmTime(daily, AlarmState.EVENT_DISABLE, NOW));
+    }
+
+    @Test
+    public void snoozeTimes() {
+        Alarm alarm = new Alarm(1, 7, 0, null, true, true, "", true, 5);
+        assertEquals(NOW + 5 * TriggerEngine.MINUTE_MILLIS,
+                AlarmState.nextAlarmTime(alarm, AlarmState.EVENT_SNOOZE, NOW));
+        assertEquals(NOW + AlarmState.AUTO_SNOOZE_MILLIS,
+                AlarmState.nextAlarmTime(alarm, AlarmState.EVENT_AUTO_SNOOZE, NOW));
+    }
+
+    @Test
+    public void flagsFollowState() {
+        Alarm alarm = new Alarm(1, 7, 0, null, true, false);
+        assertEquals(AlarmState.IDLE, alarm.getState());
+
+        alarm.setSnoozing(true);
+        assertTrue(alarm.isEnabled());
+        assertTrue(alarm.isSnoozing());
+
+        alarm.setEnabled(false);
+        assertEquals(AlarmState.IDLE, alarm.getState());
+        assertFalse(alarm.isSnoozing());
+
+        alarm.setState(AlarmState.RINGING);
+        alarm.setEnabled(true);
+        alarm.setSnoozing(false);
+        assertEquals(AlarmState.RINGING, alarm.getState());
+
+        alarm.setState(AlarmState.DISMISSED);
+        assertFalse(alarm.isEnabled());
+    }
+}
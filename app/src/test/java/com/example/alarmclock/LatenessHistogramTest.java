@@ -0,0 +1,50 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatenessHistogramTest {
+    @Test
+    public void percentilesUseBucketUpperBounds() {
+        LatenessHistogram histogram = new LatenessHistogram();
+        assertEquals(-1, histogram.percentile(50));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(40);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(3_000);
+        }
+        histogram.record(2 * 3_600_000L);
+
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.percentile(50));
+        assertEquals(5_000, histogram.percentile(95));
+        assertEquals(5_000, histogram.percentile(99));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    @Test
+    public void earlyDeliveryCountsInFirstBucket() {
+        LatenessHistogram histogram = new LatenessHistogram();
+        histogram.record(-250);
+        assertEquals(1, histogram.countAt(0));
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        LatenessHistogram histogram = new LatenessHistogram();
+        histogram.record(10);
+        histogram.record(700);
+        histogram.record(45_000);
+
+        LatenessHistogram decoded = LatenessHistogram.decode(histogram.encode());
+        assertEquals(histogram.encode(), decoded.encode());
+        assertEquals(3, decoded.count());
+
+        assertEquals(0, LatenessHistogram.decode("1,2,x").count());
+        assertEquals(0, LatenessHistogram.decode("1,2").count());
+        assertEquals(0, LatenessHistogram.decode(null).count());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.alarmclock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class PcmCacheStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keyChangesWithSourceVersion() {
+        String uri = "content://media/internal/audio/media/12";
+        assertEquals(PcmCacheStore.key(uri, 1), PcmCacheStore.key(uri, 1));
+        assertNotEquals(PcmCacheStore.key(uri, 1), PcmCacheStore.key(uri, 2));
+        assertNotEquals(PcmCacheStore.key(uri, 1), PcmCacheStore.key(uri + "3", 1));
+    }
+
+    @Test
+    public void headerRoundTrip() throws IOException {
+        File file = folder.newFile("a.pcm");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            PcmCacheStore.writeHeader(raf, new PcmCacheStore.Format(44_100, 2, 2));
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        PcmCacheStore.Format format = PcmCacheStore.readHeader(ByteBuffer.wrap(bytes));
+        assertNotNull(format);
+        assertEquals(44_100, format.sampleRate);
+        assertEquals(2, format.channelCount);
+        assertEquals(2, format.encoding);
+
+        bytes[0] ^= 1;
+        assertNull(PcmCacheStore.readHeader(ByteBuffer.wrap(bytes)));
+        assertNull(PcmCacheStore.readHeader(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    public void lookupIgnoresMissingAndHeaderOnlyFiles() throws IOException {
+        PcmCacheStore store = new PcmCacheStore(folder.getRoot(), 1_000);
+        assertNull(store.lookup("content://a", 1));
+        write(store.fileFor("content://a", 1), PcmCacheStore.HEADER_SIZE, 0);
+        assertNull(store.lookup("content://a", 1));
+        write(store.fileFor("content://a", 1), 100, 0);
+        assertEquals(store.fileFor("content://a", 1), store.lookup("content://a", 1));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedUntilWithinBudget() throws IOException {
+        PcmCacheStore store = new PcmCacheStore(folder.getRoot(), 250);
+        File oldest = write(store.fileFor("content://1", 1), 100, 1_000_000);
+        File middle = write(store.fileFor("content://2", 1), 100, 2_000_000);
+        File newest = write(store.fileFor("content://3", 1), 100, 3_000_000);
+        File other = folder.newFile("unrelated.txt");
+
+        store.evict(null);
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+        assertTrue(other.exists());
+
+        // File vừa giải mã không bị xóa dù là cũ nhất
+        PcmCacheStore tight = new PcmCacheStore(folder.getRoot(), 100);
+        tight.evict(middle);
+        assertTrue(middle.exists());
+        assertFalse(newest.exists());
+    }
+
+    private static File write(File file, int length, long lastModified) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+        if (lastModified > 0) {
+            assertTrue(file.setLastModified(lastModified));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpanRecorderTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void spansGoToLatestTimelineOfAlarm() {
+        SpanRecorder recorder = new SpanRecorder(4, 8);
+        recorder.begin(1, 0, 0);
+        recorder.begin(2, 0, 100 * MS);
+        recorder.span(1, "receive", 5 * MS, 7 * MS);
+        recorder.span(2, "receive", 102 * MS, 110 * MS);
+        recorder.span(3, "ignored", 0, 0);
+
+        String dump = recorder.dump();
+        assertTrue(dump, dump.indexOf("alarm 1") < dump.indexOf("alarm 2"));
+        assertTrue(dump, dump.contains("  receive: +5.0ms, 2.0ms\n"));
+        assertTrue(dump, dump.contains("  receive: +2.0ms, 8.0ms\n"));
+        assertFalse(dump, dump.contains("ignored"));
+    }
+
+    @Test
+    public void ringBufferKeepsNewestTimelines() {
+        SpanRecorder recorder = new SpanRecorder(3, 2);
+        for (int id = 1; id <= 5; id++) {
+            recorder.begin(id, 0, 0);
+        }
+        assertEquals(3, recorder.size());
+        String dump = recorder.dump();
+        assertFalse(dump.contains("alarm 2 "));
+        assertTrue(dump.indexOf("alarm 3 ") < dump.indexOf("alarm 4 "));
+        assertTrue(dump.indexOf("alarm 4 ") < dump.indexOf("alarm 5 "));
+    }
+
+    @Test
+    public void extraSpansAreCountedAsDropped() {
+        SpanRecorder recorder = new SpanRecorder(1, 2);
+        recorder.begin(7, 0, 0);
+        recorder.span(7, "a", 0, MS);
+        recorder.span(7, "b", 0, MS);
+        recorder.span(7, "c", 0, MS);
+        assertTrue(recorder.dump().contains("(1 spans dropped)"));
+    }
+}
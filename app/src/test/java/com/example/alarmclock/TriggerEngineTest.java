@@ -0,0 +1,263 @@
+package com.example.alarmclock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Kiểm tra TriggerEngine trên nhiều múi giờ và nhiều năm, gồm cả các ngày chuyển giờ.
+ */
+public class TriggerEngineTest {
+    private static final String[] ZONES = {
+            "UTC", "Asia/Ho_Chi_Minh", "America/New_York", "America/Los_Angeles", "America/Sao_Paulo",
+            "America/Santiago", "America/St_Johns", "America/Havana", "Europe/London", "Europe/Dublin",
+            "Europe/Berlin", "Europe/Moscow", "Africa/Casablanca", "Africa/Cairo", "Asia/Tehran",
+            "Asia/Kathmandu", "Asia/Jerusalem", "Australia/Sydney", "Australia/Lord_Howe",
+            "Pacific/Auckland", "Pacific/Chatham", "Pacific/Apia", "Antarctica/Troll"
+    };
+    private static final int[][] TIMES = {{0, 0}, {0, 30}, {1, 30}, {2, 0}, {2, 30}, {7, 0}, {23, 59}};
+    private static final List<List<Integer>> DAY_SETS = Arrays.asList(
+            Collections.emptyList(),
+            Arrays.asList(2, 3, 4, 5, 6),
+            Arrays.asList(1, 2, 3, 4, 5, 6, 7),
+            Arrays.asList(1),
+            Arrays.asList(4, 7)
+    );
+
+    private TimeZone originalZone;
+
+    @Before
+    public void setUp() {
+        originalZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+        TriggerEngine.invalidateZone();
+    }
+
+    @Test
+    public void nextMinuteIsLocalMinuteBoundary() {
+        for (String zoneName : new String[]{"UTC", "Asia/Ho_Chi_Minh", "Asia/Kathmandu", "America/St_Johns"}) {
+            ZoneId zone = useZone(zoneName);
+            long base = LocalDate.of(2026, 3, 8).atTime(1, 59).atZone(zone).toInstant().toEpochMilli();
+            for (long now = base - 1; now < base + 2 * TriggerEngine.MINUTE_MILLIS; now += 7_919L) {
+                long delay = TriggerEngine.millisToNextMinute(now);
+                assertTrue(delay > 0 && delay <= TriggerEngine.MINUTE_MILLIS);
+                LocalTime tick = Instant.ofEpochMilli(now + delay).atZone(zone).toLocalTime();
+                assertEquals(zoneName, 0, tick.getSecond());
+                assertEquals(zoneName, 0, tick.getNano());
+            }
+        }
+    }
+
+    @Test
+    public void matchesReferenceAcrossZonesAndYears() {
+        for (String zoneName : ZONES) {
+            ZoneId zone = useZone(zoneName);
+            long from = LocalDate.of(2005, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long to = LocalDate.of(2040, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long step = 11 * TriggerEngine.HOUR_MILLIS + 17 * TriggerEngine.MINUTE_MILLIS + 13_000L;
+            for (long now = from; now < to; now += step) {
+                assertAllMatch(zone, now);
+            }
+        }
+    }
+
+    @Test
+    public void matchesReferenceAroundEveryTransition() {
+        for (String zoneName : ZONES) {
+            ZoneId zone = useZone(zoneName);
+            Instant cursor = LocalDate.of(2005, 1, 1).atStartOfDay(zone).toInstant();
+            Instant end = LocalDate.of(2040, 1, 1).atStartOfDay(zone).toInstant();
+            ZoneOffsetTransition transition = zone.getRules().nextTransition(cursor);
+            while (transition != null && transition.getInstant().isBefore(end)) {
+                long at = transition.getInstant().toEpochMilli();
+                for (long now = at - TriggerEngine.DAY_MILLIS; now < at + TriggerEngine.DAY_MILLIS;
+                     now += 29 * TriggerEngine.MINUTE_MILLIS) {
+                    assertAllMatch(zone, now);
+                }
+                transition = zone.getRules().nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    public void matchesLegacyCalendarWithoutDst() {
+        for (String zoneName : new String[]{"UTC", "Asia/Ho_Chi_Minh", "Asia/Kolkata"}) {
+            ZoneId zone = useZone(zoneName);
+            long from = LocalDate.of(2025, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli();
+            long step = 97 * TriggerEngine.MINUTE_MILLIS + 13_000L;
+            for (long now = from; now < from + 366 * TriggerEngine.DAY_MILLIS; now += step) {
+                for (int[] time : TIMES) {
+                    for (List<Integer> days : DAY_SETS) {
+                        assertEquals(legacyNextAlarmTime(time[0], time[1], days, now),
+                                TriggerEngine.nextTrigger(time[0], time[1], Alarm.DaysOfWeek.fromList(days), now));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void springForwardGapRingsLaterByGapLength() {
+        ZoneId zone = useZone("America/New_York");
+        long now = epochMillis(zone, 2025, 3, 8, 12, 0);
+        long trigger = TriggerEngine.nextTrigger(2, 30, Alarm.DaysOfWeek.ALL, now);
+        assertEquals(epochMillis(zone, 2025, 3, 9, 3, 30), trigger);
+    }
+
+    @Test
+    public void fallBackOverlapRingsOnlyAtFirstOccurrence() {
+        ZoneId zone = useZone("America/New_York");
+        long now = epochMillis(zone, 2025, 11, 1, 12, 0);
+        long first = TriggerEngine.nextTrigger(1, 30, Alarm.DaysOfWeek.ALL, now);
+        // 01:30 EDT = 05:30 UTC
+        assertEquals(Instant.parse("2025-11-02T05:30:00Z").toEpochMilli(), first);
+
+        // Sau khi kêu, lần kế tiếp là ngày hôm sau chứ không phải 01:30 EST cùng đêm
+        long next = TriggerEngine.nextTrigger(1, 30, Alarm.DaysOfWeek.ALL, first + TriggerEngine.MINUTE_MILLIS);
+        assertEquals(epochMillis(zone, 2025, 11, 3, 1, 30), next);
+    }
+
+    @Test
+    public void recomputeAllFollowsZoneChange() {
+        useZone("Asia/Ho_Chi_Minh");
+        long now = Instant.parse("2025-06-01T00:00:00Z").toEpochMilli();
+        Alarm enabled = new Alarm(1, 7, 0, Arrays.asList(2, 3, 4, 5, 6), true, true);
+        Alarm disabled = new Alarm(2, 8, 0, Collections.emptyList(), true, false);
+        List<Alarm> alarms = Arrays.asList(enabled, disabled);
+        TriggerEngine.recomputeAll(alarms, now);
+        long inSaigon = enabled.getNextAlarmTime();
+
+        ZoneId london = useZone("Europe/London");
+        TriggerEngine.recomputeAll(alarms, now);
+        assertEquals(epochMillis(london, 2025, 6, 2, 7, 0), enabled.getNextAlarmTime());
+        assertEquals(6 * TriggerEngine.HOUR_MILLIS, enabled.getNextAlarmTime() - inSaigon);
+        assertEquals(0, disabled.getNextAlarmTime());
+    }
+
+    @Test
+    public void countMissedOccurrences() {
+        ZoneId zone = useZone("Asia/Ho_Chi_Minh");
+        // Thứ hai 02/06/2025 07:00
+        long first = epochMillis(zone, 2025, 6, 2, 7, 0);
+        int weekdays = Alarm.DaysOfWeek.WEEKDAYS;
+
+        assertEquals(0, TriggerEngine.countMissed(7, 0, weekdays, first, first - 1));
+        assertEquals(0, TriggerEngine.countMissed(7, 0, weekdays, 0, first));
+        assertEquals(1, TriggerEngine.countMissed(7, 0, Alarm.DaysOfWeek.NONE, first, first + 30 * TriggerEngine.DAY_MILLIS));
+        assertEquals(1, TriggerEngine.countMissed(7, 0, weekdays, first, epochMillis(zone, 2025, 6, 3, 6, 59)));
+        assertEquals(2, TriggerEngine.countMissed(7, 0, weekdays, first, epochMillis(zone, 2025, 6, 3, 7, 0)));
+        // Thứ hai đến hết chủ nhật tuần sau: 10 ngày thường
+        assertEquals(10, TriggerEngine.countMissed(7, 0, weekdays, first, epochMillis(zone, 2025, 6, 15, 23, 0)));
+        assertEquals(11, TriggerEngine.countMissed(7, 0, Alarm.DaysOfWeek.ALL, first, epochMillis(zone, 2025, 6, 12, 8, 0)));
+    }
+
+    @Test
+    public void dayOfWeekMatchesCalendar() {
+        assertEquals(Calendar.THURSDAY, TriggerEngine.dayOfWeek(0));
+        assertEquals(Calendar.WEDNESDAY, TriggerEngine.dayOfWeek(-1));
+        assertEquals(Calendar.SUNDAY, TriggerEngine.dayOfWeek(3));
+    }
+
+    private ZoneId useZone(String zoneName) {
+        TimeZone.setDefault(TimeZone.getTimeZone(zoneName));
+        TriggerEngine.invalidateZone();
+        return ZoneId.of(zoneName);
+    }
+
+    private void assertAllMatch(ZoneId zone, long now) {
+        for (int[] time : TIMES) {
+            for (List<Integer> days : DAY_SETS) {
+                int mask = Alarm.DaysOfWeek.fromList(days);
+                long expected = referenceNextTrigger(zone, time[0], time[1], mask, now);
+                long actual = TriggerEngine.nextTrigger(time[0], time[1], mask, now);
+                if (expected != actual) {
+                    fail(zone + " now=" + Instant.ofEpochMilli(now) + " " + time[0] + ":" + time[1] + " " + days +
+                            " expected " + Instant.ofEpochMilli(expected) + " but was " + Instant.ofEpochMilli(actual));
+                }
+            }
+        }
+    }
+
+    private static long epochMillis(ZoneId zone, int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(LocalDateTime.of(year, month, day, hour, minute), zone).toInstant().toEpochMilli();
+    }
+
+    // Tham chiếu bằng java.time: ZonedDateTime.of dời khoảng trống muộn hơn và chọn offset sớm hơn khi chồng
+    private static long referenceNextTrigger(ZoneId zone, int hour, int minute, int mask, long now) {
+        LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        LocalTime time = LocalTime.of(hour, minute);
+        if (mask == Alarm.DaysOfWeek.NONE) {
+            long trigger = ZonedDateTime.of(today, time, zone).toInstant().toEpochMilli();
+            return trigger < now ? ZonedDateTime.of(today.plusDays(1), time, zone).toInstant().toEpochMilli() : trigger;
+        }
+        for (int i = 0; i < 7; i++) {
+            LocalDate date = today.plusDays(i);
+            int calendarDay = date.getDayOfWeek().getValue() % 7 + 1;
+            if (Alarm.DaysOfWeek.contains(mask, calendarDay)) {
+                long trigger = ZonedDateTime.of(date, time, zone).toInstant().toEpochMilli();
+                if (i > 0 || trigger > now) {
+                    return trigger;
+                }
+            }
+        }
+        return ZonedDateTime.of(today.plusDays(7), time, zone).toInstant().toEpochMilli();
+    }
+
+    // Bản sao của Alarm.calculateNextAlarmTime() dùng Calendar trước khi có TriggerEngine
+    private static long legacyNextAlarmTime(int hour, int minute, List<Integer> daysOfWeek, long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        Calendar now = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        now.setTimeInMillis(nowMillis);
+
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        int currentDayOfWeek = now.get(Calendar.DAY_OF_WEEK);
+
+        if (daysOfWeek.isEmpty()) {
+            if (calendar.before(now)) {
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            return calendar.getTimeInMillis();
+        }
+
+        int daysToAdd = 7;
+        for (int i = 0; i < 7; i++) {
+            int nextDay = (currentDayOfWeek + i - 1) % 7 + 1;
+            if (daysOfWeek.contains(nextDay)) {
+                if (i == 0 && calendar.after(now)) {
+                    daysToAdd = 0;
+                    break;
+                } else if (i > 0) {
+                    daysToAdd = i;
+                    break;
+                }
+            }
+        }
+
+        calendar.add(Calendar.DAY_OF_MONTH, daysToAdd);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.alarmclock;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TriggerQueueTest {
+    private static final long T = 1_762_065_000_000L; // đầu phút
+
+    @Test
+    public void restoredQueueCoalescesSameMinuteAlarm() {
+        // Process vừa được AlarmReceiver đánh thức cho a; b cùng thời điểm nên next_alarm_time đã qua
+        TriggerQueue queue = new TriggerQueue();
+        queue.restore(alarm(1, T, AlarmState.SCHEDULED), T + 5_000, 0);
+        queue.restore(alarm(2, T, AlarmState.SCHEDULED), T + 5_000, 0);
+
+        List<TriggerQueue.Entry> due = queue.onAlarmFired(1, T + 5_000);
+        assertEquals(1, due.size());
+        assertEquals(2, due.get(0).alarmId);
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void restoredLateAlarmStaysAtHead() {
+        // Bị Doze giao trễ qua phút kế tiếp: không gộp được nhưng vẫn đứng đầu heap để kêu ngay
+        TriggerQueue queue = new TriggerQueue();
+        queue.restore(alarm(1, T, AlarmState.SCHEDULED), T + 90_000, 0);
+        queue.restore(alarm(2, T + 60_000, AlarmState.SNOOZED), T + 90_000, 1);
+        queue.restore(alarm(3, T + 3_600_000, AlarmState.SCHEDULED), T + 90_000, 0);
+
+        List<TriggerQueue.Entry> due = queue.onAlarmFired(1, T + 90_000);
+        assertEquals(1, due.size());
+        assertEquals(2, due.get(0).alarmId);
+        assertEquals(3, queue.peek().alarmId);
+    }
+
+    @Test
+    public void restoreSkipsRingingWithoutNextOccurrence() {
+        TriggerQueue queue = new TriggerQueue();
+        long now = T + 5_000;
+        queue.restore(alarm(1, 0, AlarmState.RINGING), now, 0);
+        queue.restore(alarm(2, T, AlarmState.RINGING), now, 0);
+        queue.restore(alarm(3, T, AlarmState.DISMISSED), now, 0);
+        queue.restore(alarm(4, 0, AlarmState.SCHEDULED), now, 0);
+        assertNull(queue.peek());
+
+        queue.restore(alarm(5, T + TriggerEngine.DAY_MILLIS, AlarmState.RINGING), now, 0);
+        assertEquals(5, queue.peek().alarmId);
+        assertEquals(1, queue.size());
+    }
+
+    private static Alarm alarm(int id, long nextAlarmTime, int state) {
+        Alarm alarm = new Alarm(id, 7, 0, null, true, true);
+        alarm.setState(state);
+        alarm.setNextAlarmTime(nextAlarmTime);
+        return alarm;
+    }
+}